@@ -0,0 +1,121 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable consistent-hash ring mapping keys (productIds) to node IDs.
+ * <p>
+ * Each node is placed on the ring at {@code virtualNodes} points; a key belongs to
+ * the first point at or after its hash (wrapping around). Adding a node therefore
+ * only moves the keys that land on the new node's points, roughly 1/N of them.
+ * Lookups are a binary search over a sorted primitive array.
+ */
+public final class ConsistentHashRing {
+
+    private final Set<String> nodeIds;
+    private final int virtualNodes;
+    private final long[] points;     // sorted hashes
+    private final String[] owners;   // owners[i] owns points[i]
+
+    /**
+     * @param nodeIds      node IDs (must not be empty, no null/blank IDs)
+     * @param virtualNodes points per node on the ring (> 0)
+     */
+    public ConsistentHashRing(Collection<String> nodeIds, int virtualNodes) {
+        if (nodeIds == null || nodeIds.isEmpty()) {
+            throw new IllegalArgumentException("nodeIds must not be empty");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be > 0");
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        for (String id : nodeIds) {
+            if (id == null || id.isBlank()) {
+                throw new IllegalArgumentException("nodeId must not be null or blank");
+            }
+            if (!ids.add(id)) {
+                throw new IllegalArgumentException("Duplicate nodeId: " + id);
+            }
+        }
+        this.nodeIds = Collections.unmodifiableSet(ids);
+        this.virtualNodes = virtualNodes;
+
+        int size = ids.size() * virtualNodes;
+        Point[] all = new Point[size];
+        int i = 0;
+        for (String id : ids) {
+            for (int v = 0; v < virtualNodes; v++) {
+                all[i++] = new Point(hash(id + "#" + v), id);
+            }
+        }
+        Arrays.sort(all, (a, b) -> a.hash() != b.hash() ? Long.compare(a.hash(), b.hash()) : a.owner().compareTo(b.owner()));
+        this.points = new long[size];
+        this.owners = new String[size];
+        for (int j = 0; j < size; j++) {
+            points[j] = all[j].hash();
+            owners[j] = all[j].owner();
+        }
+    }
+
+    /**
+     * Returns a new ring with one more node.
+     */
+    public ConsistentHashRing withNode(String nodeId) {
+        List<String> ids = new ArrayList<>(nodeIds);
+        ids.add(nodeId);
+        return new ConsistentHashRing(ids, virtualNodes);
+    }
+
+    /**
+     * Returns the node that owns the given key.
+     */
+    public String ownerOf(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must not be null");
+        }
+        long h = hash(key);
+        int idx = Arrays.binarySearch(points, h);
+        if (idx < 0) {
+            idx = -idx - 1;
+        }
+        if (idx == points.length) {
+            idx = 0;
+        }
+        return owners[idx];
+    }
+
+    public Set<String> getNodeIds() {
+        return nodeIds;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer
+     * so that similar keys ("P001", "P002") spread over the whole ring.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private record Point(long hash, String owner) {
+    }
+}
@@ -0,0 +1,49 @@
+package org.example;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * One row of a physical cycle count.
+ *
+ * @param location  bin or location where the product was counted
+ * @param productId the counted product
+ * @param counted   units found (>= 0)
+ * @param countedAt when the bin was counted
+ */
+public record CycleCount(String location, String productId, int counted, Instant countedAt) {
+
+    public CycleCount {
+        if (location == null || location.isBlank()) {
+            throw new IllegalArgumentException("location must not be null or blank");
+        }
+        if (productId == null || productId.isBlank()) {
+            throw new IllegalArgumentException("productId must not be null or blank");
+        }
+        if (counted < 0) {
+            throw new IllegalArgumentException("counted must be >= 0");
+        }
+        if (countedAt == null) {
+            throw new IllegalArgumentException("countedAt must not be null");
+        }
+    }
+
+    /**
+     * Parses a {@code location,productId,counted,countedAt} line, with countedAt as an
+     * ISO-8601 instant (e.g. {@code 2026-03-01T08:15:00Z}).
+     *
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    public static CycleCount parse(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 4) {
+            throw new IllegalArgumentException("Expected location,productId,counted,countedAt: " + line);
+        }
+        try {
+            return new CycleCount(fields[0].trim(), fields[1].trim(),
+                    Integer.parseInt(fields[2].trim()), Instant.parse(fields[3].trim()));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed cycle count: " + line, e);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Streams cycle-count rows against live stock and corrects the differences, without
+ * freezing the warehouse.
+ * <p>
+ * Each row is compared with the product's on-hand stock as of the row's count time, as
+ * reconstructed by {@link MovementTrackingStockService#onHandAsOf}: movements that
+ * happened while the count was in progress are neither missed nor double-counted. The
+ * difference is queued as an adjustment; when {@code batchSize} products are queued,
+ * the batch is applied through {@link MovementTrackingStockService#adjust} (effective
+ * at the count time) and the applied commands are handed to the sink. If the same
+ * product is counted more than once, the latest count wins.
+ * <p>
+ * Rows are consumed one at a time and only the current batch is held, so memory does
+ * not depend on the size of the count file.
+ */
+public class CycleCountReconciler {
+
+    private final MovementTrackingStockService stock;
+    private final int batchSize;
+    private final Consumer<List<StockCommand>> sink;
+
+    /**
+     * @param stock     the live store, which must receive all mutations while counts run
+     * @param batchSize number of products per adjustment batch (must be > 0)
+     * @param sink      receives each batch of applied adjustments (must not be null)
+     */
+    public CycleCountReconciler(MovementTrackingStockService stock, int batchSize,
+                                Consumer<List<StockCommand>> sink) {
+        if (stock == null) {
+            throw new IllegalArgumentException("stock must not be null");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be > 0");
+        }
+        if (sink == null) {
+            throw new IllegalArgumentException("sink must not be null");
+        }
+        this.stock = stock;
+        this.batchSize = batchSize;
+        this.sink = sink;
+    }
+
+    /**
+     * Reconciles {@code location,productId,counted,countedAt} lines (see
+     * {@link CycleCount#parse}). Blank lines and a leading header line are skipped.
+     *
+     * @throws IllegalArgumentException if a line is malformed; batches before it stay applied
+     */
+    public CycleCountReport reconcile(BufferedReader reader) throws IOException {
+        try {
+            return reconcile(new LineIterator(reader));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public CycleCountReport reconcile(Iterator<CycleCount> counts) {
+        Run run = new Run();
+        while (counts.hasNext()) {
+            run.accept(counts.next());
+        }
+        run.flush();
+        stock.trim();
+        return run.report();
+    }
+
+    private record Pending(int delta, long countedAt) {
+    }
+
+    private final class Run {
+        final Map<String, Pending> batch = new LinkedHashMap<>();
+        long rows;
+        long matched;
+        long adjusted;
+        long unitsAdded;
+        long unitsRemoved;
+        long unknown;
+        long misplaced;
+        long stale;
+        long superseded;
+        long rejected;
+
+        void accept(CycleCount count) {
+            rows++;
+            long countedAt = count.countedAt().toEpochMilli();
+            MovementTrackingStockService.AsOf asOf;
+            try {
+                asOf = stock.onHandAsOf(count.productId(), countedAt);
+            } catch (IllegalStateException e) {
+                unknown++;
+                return;
+            }
+            if (asOf == null) {
+                stale++;
+                return;
+            }
+            if (!asOf.location().equals(count.location())) {
+                misplaced++;
+                return;
+            }
+            Pending queued = batch.get(count.productId());
+            if (asOf.superseded() || queued != null && queued.countedAt() > countedAt) {
+                superseded++;
+                return;
+            }
+            if (queued != null) {
+                superseded++;
+            }
+            batch.put(count.productId(), new Pending(count.counted() - asOf.onHand(), countedAt));
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            List<StockCommand> applied = new ArrayList<>();
+            for (Map.Entry<String, Pending> entry : batch.entrySet()) {
+                Pending pending = entry.getValue();
+                if (pending.delta() == 0) {
+                    // Still the latest count: an older one in a later batch must not win.
+                    stock.markCounted(entry.getKey(), pending.countedAt());
+                    matched++;
+                    continue;
+                }
+                try {
+                    applied.add(stock.adjust(entry.getKey(), pending.delta(), pending.countedAt()));
+                } catch (IllegalStateException e) {
+                    stock.markCounted(entry.getKey(), pending.countedAt());
+                    rejected++;
+                    continue;
+                }
+                adjusted++;
+                if (pending.delta() > 0) {
+                    unitsAdded += pending.delta();
+                } else {
+                    unitsRemoved -= pending.delta();
+                }
+            }
+            batch.clear();
+            if (!applied.isEmpty()) {
+                sink.accept(applied);
+            }
+        }
+
+        CycleCountReport report() {
+            return new CycleCountReport(rows, matched, adjusted, unitsAdded, unitsRemoved,
+                    unknown, misplaced, stale, superseded, rejected);
+        }
+    }
+
+    private static final class LineIterator implements Iterator<CycleCount> {
+        private final BufferedReader reader;
+        private CycleCount next;
+        private boolean first = true;
+
+        LineIterator(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                String line;
+                try {
+                    line = reader.readLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (line == null) {
+                    return false;
+                }
+                boolean header = first && line.startsWith("location,");
+                first = false;
+                if (!header && !line.isBlank()) {
+                    next = CycleCount.parse(line);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public CycleCount next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            CycleCount count = next;
+            next = null;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.example;
+
+/**
+ * Result of a {@link CycleCountReconciler} run.
+ *
+ * @param rows         count rows read
+ * @param matched      rows that agreed with the stock as of their count time
+ * @param adjusted     adjustments applied
+ * @param unitsAdded   units added by adjustments
+ * @param unitsRemoved units removed by adjustments
+ * @param unknown      rows for products that do not exist
+ * @param misplaced    rows whose location is not the product's location
+ * @param stale        rows counted before the movement retention period
+ * @param superseded   rows overridden by a later count of the same product
+ * @param rejected     adjustments that ProductStock rejected when applied
+ */
+public record CycleCountReport(long rows,
+                               long matched,
+                               long adjusted,
+                               long unitsAdded,
+                               long unitsRemoved,
+                               long unknown,
+                               long misplaced,
+                               long stale,
+                               long superseded,
+                               long rejected) {
+}
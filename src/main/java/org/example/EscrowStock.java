@@ -0,0 +1,278 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Escrow wrapper for a hot {@link ProductStock} that takes many concurrent reserves.
+ * <p>
+ * Part of the available stock is reserved on the wrapped ProductStock on behalf of
+ * per-thread stripes ("escrow"). A {@link #reserve} first takes units from the
+ * calling thread's stripe with a single CAS on that stripe's own cache line, so
+ * threads do not contend with each other. When a stripe runs dry it is refilled
+ * from the global state under a lock; if the global state cannot cover the request,
+ * unused quota is pulled back from all other stripes first.
+ * <p>
+ * When the available stock falls to {@code lowWatermark} or below, escrow switches
+ * off and every reserve goes to the global state directly, so the wrapper can never
+ * hand out more than ProductStock itself would. Escrow switches back on once the
+ * available stock is back above {@code lowWatermark + stripes * refillQuantum}.
+ * <p>
+ * All other operations take the lock. Units held by stripes are counted as reserved
+ * on the wrapped stock, so the getters below subtract them to report the real values.
+ */
+public class EscrowStock {
+
+    // One int per 64-byte cache line.
+    private static final int PAD = 16;
+    private static final AtomicInteger NEXT_THREAD_INDEX = new AtomicInteger();
+    private static final ThreadLocal<Integer> THREAD_INDEX =
+            ThreadLocal.withInitial(NEXT_THREAD_INDEX::getAndIncrement);
+
+    private final ProductStock stock;   // guarded by lock
+    private final Object lock = new Object();
+    private final AtomicIntegerArray quotas;
+    private final int stripes;
+    private final int refillQuantum;
+    private final int lowWatermark;
+
+    private volatile boolean escrowEnabled = true;
+    private boolean designated = true;
+
+    /**
+     * @param stock         the hot SKU; must not be used directly afterwards
+     * @param stripes       number of quota stripes, typically the number of cores (> 0)
+     * @param refillQuantum units moved into a stripe when it runs dry (> 0)
+     * @param lowWatermark  available stock at or below which escrow is switched off (>= 0)
+     */
+    public EscrowStock(ProductStock stock, int stripes, int refillQuantum, int lowWatermark) {
+        if (stock == null) {
+            throw new IllegalArgumentException("stock must not be null");
+        }
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be > 0");
+        }
+        if (refillQuantum <= 0) {
+            throw new IllegalArgumentException("refillQuantum must be > 0");
+        }
+        if (lowWatermark < 0) {
+            throw new IllegalArgumentException("lowWatermark must be >= 0");
+        }
+        this.stock = stock;
+        this.stripes = stripes;
+        this.refillQuantum = refillQuantum;
+        this.lowWatermark = lowWatermark;
+        this.quotas = new AtomicIntegerArray(stripes * PAD);
+    }
+
+    public String getProductId() {
+        return stock.getProductId();
+    }
+
+    /**
+     * Reserves stock for a customer order.
+     * Cannot reserve more than available.
+     */
+    public void reserve(int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount to reserve must be positive");
+        }
+        int stripe = stripeIndex();
+        if (escrowEnabled && tryTake(stripe, amount)) {
+            return;
+        }
+        synchronized (lock) {
+            if (escrowEnabled) {
+                if (tryTake(stripe, amount)) {
+                    return;
+                }
+                if (stock.getAvailable() + quota(stripe) < amount) {
+                    // Rebalance: pull unused quota back from the other stripes.
+                    drainAll();
+                }
+                if (stock.getAvailable() <= lowWatermark) {
+                    // Near zero: stay on the global state so we never oversell.
+                    escrowEnabled = false;
+                    drainAll();
+                } else {
+                    int grant = Math.min(stock.getAvailable(), Math.max(amount, refillQuantum));
+                    stock.reserve(grant);
+                    quotas.addAndGet(stripe * PAD, grant);
+                    if (tryTake(stripe, amount)) {
+                        return;
+                    }
+                    drainAll();
+                }
+            }
+            stock.reserve(amount);
+        }
+    }
+
+    /**
+     * Releases (un-reserves) previously reserved stock.
+     * Cannot release more than currently reserved.
+     */
+    public void releaseReservation(int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount to release must be positive");
+        }
+        synchronized (lock) {
+            // Concurrent fast-path reserves only lower the escrow total, so this never under-counts.
+            if (amount > stock.getReserved() - escrowHeld()) {
+                throw new IllegalStateException("Cannot release more than reserved");
+            }
+            stock.releaseReservation(amount);
+            maybeEnableEscrow();
+        }
+    }
+
+    /**
+     * Confirms shipment of previously reserved stock.
+     */
+    public void shipReserved(int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount to ship must be positive");
+        }
+        synchronized (lock) {
+            if (amount > stock.getReserved() - escrowHeld()) {
+                throw new IllegalStateException("Cannot ship more than reserved");
+            }
+            stock.shipReserved(amount);
+        }
+    }
+
+    public void addStock(int amount) {
+        synchronized (lock) {
+            stock.addStock(amount);
+            maybeEnableEscrow();
+        }
+    }
+
+    /**
+     * Removes damaged stock. All escrow is returned to the global state first so
+     * that ProductStock's clamping of reserved only ever affects real reservations.
+     */
+    public void removeDamaged(int amount) {
+        synchronized (lock) {
+            drainAll();
+            stock.removeDamaged(amount);
+        }
+    }
+
+    public int getOnHand() {
+        synchronized (lock) {
+            return stock.getOnHand();
+        }
+    }
+
+    /**
+     * Units reserved by orders (excluding escrow). May trail reserves in flight on other threads.
+     */
+    public int getReserved() {
+        synchronized (lock) {
+            return stock.getReserved() - escrowHeld();
+        }
+    }
+
+    /**
+     * Available stock = onHand - reserved, counting escrow as available.
+     */
+    public int getAvailable() {
+        synchronized (lock) {
+            return stock.getAvailable() + escrowHeld();
+        }
+    }
+
+    public boolean isReorderNeeded() {
+        synchronized (lock) {
+            return stock.getAvailable() + escrowHeld() < stock.getReorderThreshold();
+        }
+    }
+
+    /**
+     * True while reserves are served from per-stripe quotas.
+     */
+    public boolean isEscrowActive() {
+        return escrowEnabled;
+    }
+
+    /**
+     * Stops using escrow for this SKU and returns all quota to the global state.
+     */
+    public void disableEscrow() {
+        synchronized (lock) {
+            designated = false;
+            escrowEnabled = false;
+            drainAll();
+        }
+    }
+
+    /**
+     * Resumes escrow once the available stock is high enough.
+     */
+    public void enableEscrow() {
+        synchronized (lock) {
+            designated = true;
+            maybeEnableEscrow();
+        }
+    }
+
+    /**
+     * Snapshot with escrow folded back into available stock.
+     */
+    public StockSnapshot snapshot() {
+        synchronized (lock) {
+            int held = escrowHeld();
+            return new StockSnapshot(stock.getProductId(), stock.getLocation(), stock.getOnHand(),
+                    stock.getReserved() - held, stock.getReorderThreshold(), stock.getMaxCapacity());
+        }
+    }
+
+    private boolean tryTake(int stripe, int amount) {
+        int index = stripe * PAD;
+        while (true) {
+            int current = quotas.get(index);
+            if (current < amount) {
+                return false;
+            }
+            if (quotas.compareAndSet(index, current, current - amount)) {
+                return true;
+            }
+        }
+    }
+
+    private int quota(int stripe) {
+        return quotas.get(stripe * PAD);
+    }
+
+    // Caller holds lock.
+    private int escrowHeld() {
+        int held = 0;
+        for (int i = 0; i < stripes; i++) {
+            held += quotas.get(i * PAD);
+        }
+        return held;
+    }
+
+    // Caller holds lock.
+    private void drainAll() {
+        for (int i = 0; i < stripes; i++) {
+            int held = quotas.getAndSet(i * PAD, 0);
+            if (held > 0) {
+                stock.releaseReservation(held);
+            }
+        }
+    }
+
+    // Caller holds lock.
+    private void maybeEnableEscrow() {
+        if (designated && !escrowEnabled
+                && stock.getAvailable() > lowWatermark + (long) stripes * refillQuantum) {
+            escrowEnabled = true;
+        }
+    }
+
+    private int stripeIndex() {
+        return THREAD_INDEX.get() % stripes;
+    }
+}
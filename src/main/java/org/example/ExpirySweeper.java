@@ -0,0 +1,90 @@
+package org.example;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background sweep that removes expired lots from every {@link LotTrackedStock}
+ * sharing one {@link LotExpiryIndex}.
+ * <p>
+ * A sweep walks the index from the earliest expiry and stops at the first lot that
+ * is not expired yet, so its cost is proportional to the number of expired lots,
+ * not to the number of lots or SKUs. Each expired lot is removed through
+ * ProductStock's removeDamaged semantics.
+ */
+public class ExpirySweeper implements AutoCloseable {
+
+    private final LotExpiryIndex index;
+    private final Clock clock;
+    private final LongAdder removedUnits = new LongAdder();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param index the index shared by the stocks to sweep (must not be null)
+     * @param clock source of "today" for scheduled sweeps (must not be null)
+     */
+    public ExpirySweeper(LotExpiryIndex index, Clock clock) {
+        if (index == null) {
+            throw new IllegalArgumentException("index must not be null");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("clock must not be null");
+        }
+        this.index = index;
+        this.clock = clock;
+    }
+
+    /**
+     * Removes every lot whose expiry is before {@code asOf}.
+     *
+     * @return number of units removed
+     */
+    public int sweep(LocalDate asOf) {
+        int removed = 0;
+        Map.Entry<LotExpiryIndex.Key, LotTrackedStock> expired;
+        while ((expired = index.pollExpired(asOf)) != null) {
+            removed += expired.getValue().expireLot(expired.getKey().lotId(), asOf);
+        }
+        removedUnits.add(removed);
+        return removed;
+    }
+
+    /**
+     * Sweeps as of the clock's current date every {@code interval}, starting now.
+     */
+    public synchronized void start(Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be > 0");
+        }
+        if (scheduler != null) {
+            throw new IllegalStateException("ExpirySweeper already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "expiry-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> sweep(LocalDate.now(clock)),
+                0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Total units removed by all sweeps so far.
+     */
+    public long getRemovedUnits() {
+        return removedUnits.sum();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
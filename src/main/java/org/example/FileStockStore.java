@@ -0,0 +1,252 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * {@link StockStore} backed by an append-only local file.
+ * <p>
+ * Each write appends {@code length (int) | StockWireCodec stock record}. The in-memory
+ * index holds no objects per product: it is an open-addressing table of two longs per
+ * slot, the 64-bit hash of the productId and the offset and size of its latest record.
+ * Products whose hashes collide are told apart by reading the productId back from the
+ * record, so the index never needs to keep the id strings. Opening an existing file
+ * rebuilds the index by scanning it. When more than half of the file is superseded
+ * records, the live records are copied into a fresh file.
+ * I/O errors are rethrown as {@link UncheckedIOException}.
+ */
+public class FileStockStore implements StockStore, AutoCloseable {
+
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+    private static final int SIZE_BITS = 16;
+    private static final int INITIAL_SLOTS = 1024;
+
+    private final Path file;
+    private final StockWireCodec codec = new StockWireCodec();
+    private final ByteBuffer buffer = ByteBuffer.allocate(4 * 1024);
+    // Index slots: hash of the productId, and (offset << SIZE_BITS) | recordSize of its
+    // latest record. A location of 0 marks an empty slot (records are never empty).
+    private long[] hashes = new long[INITIAL_SLOTS];
+    private long[] locations = new long[INITIAL_SLOTS];
+    private int count;
+    private FileChannel channel;
+    private long fileBytes;
+    private long liveBytes;
+
+    /**
+     * Opens (or creates) the store file and indexes any records already in it.
+     */
+    public FileStockStore(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("file must not be null");
+        }
+        this.file = file;
+        this.channel = open(file);
+        scan();
+    }
+
+    @Override
+    public synchronized StockSnapshot load(String productId) {
+        long hash = ConsistentHashRing.hash(productId);
+        try {
+            for (int i = slotOf(hash); locations[i] != 0; i = (i + 1) & (locations.length - 1)) {
+                if (hashes[i] == hash) {
+                    StockSnapshot snapshot = readAt(locations[i] >>> SIZE_BITS);
+                    if (snapshot.productId().equals(productId)) {
+                        return snapshot;
+                    }
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void storeAll(Collection<StockSnapshot> snapshots) {
+        try {
+            for (StockSnapshot snapshot : snapshots) {
+                buffer.clear();
+                buffer.position(4);
+                codec.encode(snapshot, buffer);
+                int size = buffer.position();
+                buffer.putInt(0, size - 4);
+                buffer.flip();
+                long offset = fileBytes;
+                writeFully(channel, buffer, offset);
+                fileBytes += size;
+
+                track(snapshot.productId(), offset, size);
+            }
+            if (fileBytes > MIN_COMPACTION_BYTES && fileBytes > 2 * liveBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized boolean contains(String productId) {
+        return load(productId) != null;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Current file size in bytes, including superseded records.
+     */
+    public synchronized long getFileBytes() {
+        return fileBytes;
+    }
+
+    /**
+     * Rewrites the file with only the latest record of each product.
+     */
+    public synchronized void compact() throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+        long written = 0;
+        long[] newLocations = new long[locations.length];
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer copy = ByteBuffer.allocate(4 * 1024);
+            for (int i = 0; i < locations.length; i++) {
+                if (locations[i] == 0) {
+                    continue;
+                }
+                int size = sizeOf(locations[i]);
+                copy.clear().limit(size);
+                readFully(channel, copy, locations[i] >>> SIZE_BITS);
+                copy.flip();
+                writeFully(out, copy, written);
+                newLocations[i] = (written << SIZE_BITS) | size;
+                written += size;
+            }
+            out.force(false);
+        }
+        channel.close();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open(file);
+        // Same slots, new offsets: the hashes and probe order are unchanged.
+        locations = newLocations;
+        fileBytes = written;
+        liveBytes = written;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void scan() throws IOException {
+        long size = channel.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(4);
+        while (offset + 4 <= size) {
+            header.clear();
+            readFully(channel, header, offset);
+            int length = header.getInt(0);
+            if (length <= 0 || offset + 4 + length > size) {
+                break;
+            }
+            StockSnapshot snapshot = readAt(offset);
+            track(snapshot.productId(), offset, 4 + length);
+            offset += 4 + length;
+        }
+        if (offset < size) {
+            // Torn write at the tail: drop it.
+            channel.truncate(offset);
+        }
+        fileBytes = offset;
+    }
+
+    private void track(String productId, long offset, int size) throws IOException {
+        long hash = ConsistentHashRing.hash(productId);
+        int i = slotOf(hash);
+        for (; locations[i] != 0; i = (i + 1) & (locations.length - 1)) {
+            if (hashes[i] == hash && readAt(locations[i] >>> SIZE_BITS).productId().equals(productId)) {
+                liveBytes += size - sizeOf(locations[i]);
+                locations[i] = (offset << SIZE_BITS) | size;
+                return;
+            }
+        }
+        hashes[i] = hash;
+        locations[i] = (offset << SIZE_BITS) | size;
+        liveBytes += size;
+        if (++count * 2 > locations.length) {
+            grow();
+        }
+    }
+
+    // Doubles the table, keeping it at most half full so probe sequences stay short.
+    private void grow() {
+        long[] oldHashes = hashes;
+        long[] oldLocations = locations;
+        hashes = new long[oldHashes.length * 2];
+        locations = new long[oldLocations.length * 2];
+        for (int j = 0; j < oldLocations.length; j++) {
+            if (oldLocations[j] != 0) {
+                int i = slotOf(oldHashes[j]);
+                while (locations[i] != 0) {
+                    i = (i + 1) & (locations.length - 1);
+                }
+                hashes[i] = oldHashes[j];
+                locations[i] = oldLocations[j];
+            }
+        }
+    }
+
+    private int slotOf(long hash) {
+        return (int) hash & (locations.length - 1);
+    }
+
+    private static int sizeOf(long location) {
+        return (int) (location & ((1 << SIZE_BITS) - 1));
+    }
+
+    private StockSnapshot readAt(long offset) throws IOException {
+        buffer.clear().limit(4);
+        readFully(channel, buffer, offset);
+        int length = buffer.getInt(0);
+        if (length <= 0 || length > buffer.capacity()) {
+            throw new IOException("Corrupt record at offset " + offset + " in " + file);
+        }
+        buffer.clear().limit(length);
+        readFully(channel, buffer, offset + 4);
+        buffer.flip();
+        try {
+            return codec.decodeSnapshot(buffer);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt record at offset " + offset + " in " + file, e);
+        }
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            int n = channel.read(dst, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += n;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer src, long position) throws IOException {
+        while (src.hasRemaining()) {
+            position += channel.write(src, position);
+        }
+    }
+}
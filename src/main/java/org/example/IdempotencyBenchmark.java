@@ -0,0 +1,64 @@
+package org.example;
+
+import java.time.Duration;
+
+/**
+ * Measures the per-command overhead of {@link IdempotentStockService}: the same
+ * add/remove stream is applied to an {@link InMemoryStockService} directly, with
+ * fresh keys, and as duplicates of already-seen keys, and nanoseconds per command are
+ * printed. Run {@link #main}; the first argument overrides the iteration count.
+ */
+public final class IdempotencyBenchmark {
+
+    private static final int SKUS = 1_000;
+
+    private IdempotencyBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        InMemoryStockService store = new InMemoryStockService();
+        StockCommand[] commands = new StockCommand[SKUS * 2];
+        for (int i = 0; i < SKUS; i++) {
+            String sku = WorkloadSpec.skuId(i);
+            store.apply(new StockCommand.Create(sku, "WH-1", 1_000, 10, 10_000));
+            commands[2 * i] = new StockCommand.AddStock(sku, 1);
+            commands[2 * i + 1] = new StockCommand.RemoveDamaged(sku, 1);
+        }
+        IdempotentStockService dedup = new IdempotentStockService(store, Duration.ofMinutes(1), 2 * iterations);
+
+        // Warm up all paths before measuring.
+        direct(store, commands, iterations / 10);
+        keyed(dedup, commands, -1L - iterations / 10, iterations / 10);
+
+        System.out.printf("%-12s %10s%n", "mode", "ns/command");
+        long start = System.nanoTime();
+        direct(store, commands, iterations);
+        report("direct", iterations, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        keyed(dedup, commands, 0L, iterations);
+        report("new keys", iterations, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        keyed(dedup, commands, 0L, iterations);
+        report("duplicates", iterations, System.nanoTime() - start);
+        System.out.printf("evicted live outcomes: %d%n", dedup.getEvictedLiveCount());
+    }
+
+    private static void direct(LoadTarget target, StockCommand[] commands, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            target.apply(commands[i % commands.length]);
+        }
+    }
+
+    private static void keyed(IdempotentStockService dedup, StockCommand[] commands, long firstKey, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            dedup.apply(firstKey + i, commands[i % commands.length]);
+        }
+    }
+
+    private static void report(String mode, int iterations, long nanos) {
+        System.out.printf("%-12s %10.1f%n", mode, (double) nanos / iterations);
+    }
+}
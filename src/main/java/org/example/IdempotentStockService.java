@@ -0,0 +1,287 @@
+package org.example;
+
+import java.time.Duration;
+
+/**
+ * {@link LoadTarget} decorator that applies each idempotency key at most once.
+ * <p>
+ * The outcome of every keyed command (applied, or rejected with the exception message)
+ * is remembered for {@code window} from the command's arrival; a retry with the same
+ * key inside the window gets the original outcome replayed instead of being applied
+ * again. A duplicate that arrives while the first attempt is still running waits for
+ * its outcome. Reusing a key for a different command is an error.
+ * <p>
+ * Keys are 64-bit values chosen by the caller (e.g. the low bits of a request UUID).
+ * The cache is split into lock stripes; each stripe is a set-associative table of
+ * {@value #WAYS}-way sets held in parallel primitive arrays, so a lookup takes one
+ * uncontended monitor and a scan of a few adjacent longs, and no allocation. Memory is
+ * fixed by {@code capacity}. When a set is full, the oldest entry is overwritten even if
+ * it is still inside the window; {@link #getEvictedLiveCount()} counts these, and a
+ * non-zero value means the cache is too small for the retry window.
+ * <p>
+ * Commands that throw something other than IllegalStateException or
+ * IllegalArgumentException are not remembered, so that a retry applies them again.
+ */
+public class IdempotentStockService implements LoadTarget {
+
+    static final int WAYS = 8;
+
+    private static final byte EMPTY = 0;
+    private static final byte PENDING = 1;
+    private static final byte APPLIED = 2;
+    private static final byte REJECTED_STATE = 3;
+    private static final byte REJECTED_ARGUMENT = 4;
+
+    private final LoadTarget delegate;
+    private final long windowNanos;
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    /**
+     * @param delegate the store to apply commands to (must not be null)
+     * @param window   how long outcomes are remembered (must be > 0)
+     * @param capacity number of outcomes to hold; should cover the keyed commands
+     *                 expected within one window (must be > 0)
+     * @param stripes  number of lock stripes (a power of two)
+     */
+    public IdempotentStockService(LoadTarget delegate, Duration window, int capacity, int stripes) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate must not be null");
+        }
+        if (window == null || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("window must be > 0");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("stripes must be a power of two");
+        }
+        this.delegate = delegate;
+        this.windowNanos = window.toNanos();
+        int setsPerStripe = (int) ((capacity + (long) stripes * WAYS - 1) / ((long) stripes * WAYS));
+        if (setsPerStripe > 1) {
+            setsPerStripe = Integer.highestOneBit(setsPerStripe - 1) << 1;
+        }
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe(setsPerStripe);
+        }
+        this.stripeShift = 64 - Integer.numberOfTrailingZeros(stripes);
+    }
+
+    public IdempotentStockService(LoadTarget delegate, Duration window, int capacity) {
+        this(delegate, window, capacity, 64);
+    }
+
+    /**
+     * Applies a command without deduplication.
+     */
+    @Override
+    public void apply(StockCommand command) {
+        delegate.apply(command);
+    }
+
+    /**
+     * Applies a command unless a command with the same key was applied within the window.
+     *
+     * @param idempotencyKey caller-chosen key identifying this logical request
+     * @return true if the command was applied now, false if a previous outcome was replayed
+     * @throws IllegalStateException    if the command (or the replayed original) was rejected
+     * @throws IllegalArgumentException if the key was already used for a different command,
+     *                                  or the command (or the replayed original) had an invalid argument
+     */
+    public boolean apply(long idempotencyKey, StockCommand command) {
+        if (command == null) {
+            throw new IllegalArgumentException("command must not be null");
+        }
+        long h = mix(idempotencyKey);
+        Stripe stripe = stripes[stripes.length == 1 ? 0 : (int) (h >>> stripeShift)];
+        int fingerprint = command.hashCode();
+        int slot;
+        synchronized (stripe) {
+            slot = stripe.claim(idempotencyKey, (int) h, fingerprint, windowNanos);
+            if (slot < 0) {
+                stripe.replay(-slot - 1);
+                return false;
+            }
+        }
+        byte outcome = APPLIED;
+        String message = null;
+        try {
+            delegate.apply(command);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            outcome = e instanceof IllegalStateException ? REJECTED_STATE : REJECTED_ARGUMENT;
+            message = e.getMessage();
+            throw e;
+        } catch (RuntimeException | Error e) {
+            outcome = EMPTY;
+            throw e;
+        } finally {
+            synchronized (stripe) {
+                stripe.complete(slot, outcome, message);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public StockSnapshot snapshot(String productId) {
+        return delegate.snapshot(productId);
+    }
+
+    /**
+     * Number of keyed commands answered from the cache.
+     */
+    public long getReplayCount() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.replays;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Number of outcomes overwritten before their window ended.
+     */
+    public long getEvictedLiveCount() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.evictedLive;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Total number of outcomes the cache can hold.
+     */
+    public int capacity() {
+        return stripes.length * stripes[0].keys.length;
+    }
+
+    // MurmurHash3 fmix64: stripe from the high bits, set from the low bits.
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * One lock stripe. Slot {@code set * WAYS + way}; all access under the stripe's monitor.
+     */
+    private static final class Stripe {
+        final long[] keys;
+        final long[] timestamps;
+        final int[] fingerprints;
+        final byte[] states;
+        final String[] messages;
+        final int setMask;
+        long replays;
+        long evictedLive;
+
+        Stripe(int sets) {
+            int slots = sets * WAYS;
+            keys = new long[slots];
+            timestamps = new long[slots];
+            fingerprints = new int[slots];
+            states = new byte[slots];
+            messages = new String[slots];
+            setMask = sets - 1;
+        }
+
+        /**
+         * Finds the key's slot. Returns {@code -slot - 1} if it holds a finished outcome
+         * to replay (waiting out a pending one first), otherwise claims a slot as
+         * pending and returns it.
+         */
+        int claim(long key, int hash, int fingerprint, long windowNanos) {
+            int base = (hash & setMask) * WAYS;
+            while (true) {
+                long now = System.nanoTime();
+                int victim = -1;
+                boolean inFlight = false;
+                for (int i = base; i < base + WAYS; i++) {
+                    if (states[i] == EMPTY || keys[i] != key) {
+                        continue;
+                    }
+                    if (states[i] != PENDING && now - timestamps[i] >= windowNanos) {
+                        victim = i;
+                        break;
+                    }
+                    if (fingerprints[i] != fingerprint) {
+                        throw new IllegalArgumentException(
+                                "Idempotency key " + key + " was already used for a different command");
+                    }
+                    if (states[i] != PENDING) {
+                        replays++;
+                        return -i - 1;
+                    }
+                    inFlight = true;
+                    break;
+                }
+                if (!inFlight) {
+                    if (victim < 0) {
+                        victim = victim(base, now, windowNanos);
+                    }
+                    if (victim >= 0) {
+                        keys[victim] = key;
+                        fingerprints[victim] = fingerprint;
+                        states[victim] = PENDING;
+                        messages[victim] = null;
+                        timestamps[victim] = now;
+                        return victim;
+                    }
+                }
+                // The key is in flight on another thread, or every way of the set is:
+                // wait for an outcome, then look again.
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for an idempotent command", e);
+                }
+            }
+        }
+
+        /**
+         * An empty way, else the oldest finished one; -1 if all ways are pending.
+         */
+        private int victim(int base, long now, long windowNanos) {
+            int oldest = -1;
+            for (int i = base; i < base + WAYS; i++) {
+                if (states[i] == EMPTY) {
+                    return i;
+                }
+                if (states[i] != PENDING && (oldest < 0 || timestamps[i] - timestamps[oldest] < 0)) {
+                    oldest = i;
+                }
+            }
+            if (oldest >= 0 && now - timestamps[oldest] < windowNanos) {
+                evictedLive++;
+            }
+            return oldest;
+        }
+
+        void complete(int slot, byte outcome, String message) {
+            states[slot] = outcome;
+            messages[slot] = message;
+            notifyAll();
+        }
+
+        void replay(int slot) {
+            if (states[slot] == REJECTED_STATE) {
+                throw new IllegalStateException(messages[slot]);
+            }
+            if (states[slot] == REJECTED_ARGUMENT) {
+                throw new IllegalArgumentException(messages[slot]);
+            }
+        }
+    }
+}
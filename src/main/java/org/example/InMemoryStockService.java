@@ -0,0 +1,51 @@
+package org.example;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Baseline thread-safe stock service: one {@link ProductStock} per SKU in a
+ * concurrent map, each mutation under that stock's monitor.
+ */
+public class InMemoryStockService implements LoadTarget {
+
+    private final ConcurrentMap<String, ProductStock> stocks = new ConcurrentHashMap<>();
+
+    @Override
+    public void apply(StockCommand command) {
+        if (command == null) {
+            throw new IllegalArgumentException("command must not be null");
+        }
+        if (command instanceof StockCommand.Create) {
+            ProductStock created = command.applyTo(null);
+            if (stocks.putIfAbsent(command.productId(), created) != null) {
+                throw new IllegalStateException("productId already exists: " + command.productId());
+            }
+            return;
+        }
+        ProductStock stock = require(command.productId());
+        synchronized (stock) {
+            command.applyTo(stock);
+        }
+    }
+
+    @Override
+    public StockSnapshot snapshot(String productId) {
+        ProductStock stock = require(productId);
+        synchronized (stock) {
+            return StockSnapshot.of(stock);
+        }
+    }
+
+    public int size() {
+        return stocks.size();
+    }
+
+    private ProductStock require(String productId) {
+        ProductStock stock = stocks.get(productId);
+        if (stock == null) {
+            throw new IllegalStateException("Unknown productId: " + productId);
+        }
+        return stock;
+    }
+}
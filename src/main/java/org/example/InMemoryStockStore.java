@@ -0,0 +1,56 @@
+package org.example;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reference {@link StockStore} keeping snapshots in a map.
+ * Counts loads and writes so callers can observe store traffic.
+ */
+public class InMemoryStockStore implements StockStore {
+
+    private final ConcurrentMap<String, StockSnapshot> rows = new ConcurrentHashMap<>();
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+
+    @Override
+    public StockSnapshot load(String productId) {
+        loadCount.incrementAndGet();
+        return rows.get(productId);
+    }
+
+    @Override
+    public void storeAll(Collection<StockSnapshot> snapshots) {
+        for (StockSnapshot snapshot : snapshots) {
+            rows.put(snapshot.productId(), snapshot);
+            writeCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the stored row without counting it as a load.
+     */
+    public StockSnapshot peek(String productId) {
+        return rows.get(productId);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * Number of {@link #load} calls so far.
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * Number of rows written so far (one per snapshot).
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+}
@@ -0,0 +1,106 @@
+package org.example;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Stream framing of journal batches shipped from a {@link ReplicationPrimary}
+ * to its followers. Commands and snapshots are {@link StockWireCodec} messages,
+ * the same encoding used by stores and operation traces; a message carries its own
+ * payload length, so it is written to the stream as-is.
+ * <p>
+ * Start frame (once per connection): fromSequence (long), count (int),
+ * then count x [lastSequence (long), stock record].
+ * Batch frame: headSequence (long), sentAtMillis (long), count (int),
+ * then count x [sequence (long), command].
+ * Ack frame (follower to primary): appliedSequence (long).
+ * <p>
+ * Holds a codec and a scratch buffer, so instances are not thread-safe; use one per
+ * connection thread.
+ */
+final class JournalWire {
+
+    // type (u8) | version (u8) | payload length (varint, at most 5 bytes)
+    private static final int MAX_HEADER_BYTES = 7;
+
+    private final StockWireCodec codec = new StockWireCodec();
+    private ByteBuffer buffer = ByteBuffer.allocate(256);
+
+    void writeCommand(DataOutput out, StockCommand command) throws IOException {
+        buffer.clear();
+        while (true) {
+            try {
+                codec.encode(command, buffer);
+                break;
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    void writeSnapshot(DataOutput out, StockSnapshot snapshot) throws IOException {
+        buffer.clear();
+        while (true) {
+            try {
+                codec.encode(snapshot, buffer);
+                break;
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    StockCommand readCommand(DataInput in) throws IOException {
+        readMessage(in);
+        try {
+            return codec.decodeCommand(buffer);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt journal entry", e);
+        }
+    }
+
+    StockSnapshot readSnapshot(DataInput in) throws IOException {
+        readMessage(in);
+        try {
+            return codec.decodeSnapshot(buffer);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt snapshot", e);
+        }
+    }
+
+    // Copies one codec message from the stream into buffer, ready for decoding.
+    private void readMessage(DataInput in) throws IOException {
+        buffer.clear();
+        buffer.put(in.readByte());
+        buffer.put(in.readByte());
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift >= 35) {
+                throw new IOException("Corrupt journal message length");
+            }
+            byte b = in.readByte();
+            buffer.put(b);
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        if (length < 0) {
+            throw new IOException("Corrupt journal message length");
+        }
+        if (buffer.remaining() < length) {
+            ByteBuffer larger = ByteBuffer.allocate(MAX_HEADER_BYTES + length);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        in.readFully(buffer.array(), buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        buffer.flip();
+    }
+}
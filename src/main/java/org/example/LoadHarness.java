@@ -0,0 +1,320 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load-test harness that drives a {@link LoadTarget} with generated or captured
+ * order-shaped traffic and reports throughput, latency percentiles, rejection
+ * rates and invariant violations.
+ * <p>
+ * Every run first creates the spec's SKUs on the target. Afterwards each SKU is
+ * checked for {@code 0 <= reserved <= onHand <= maxCapacity} and for on-hand
+ * conservation: initial + accepted receipts - accepted ships - accepted damage.
+ * <p>
+ * {@link #record} runs like {@link #run} and also keeps, per worker, the commands it
+ * sent to the target in order; {@link #replay} sends a recording again with one thread
+ * per stream (see {@link OperationTrace} to store a stream). A generator adapts to
+ * rejections, so only a recording taken against a target reproduces that traffic;
+ * {@link #generate} produces a stream offline, with no rejection feedback. A single
+ * stream is replayed on the calling thread, so it always ends in the same state
+ * against the same kind of target.
+ */
+public final class LoadHarness {
+
+    /**
+     * Result of {@link #record}: the run's report and, per worker, the commands it sent.
+     */
+    public record Recording(LoadReport report, List<List<StockCommand>> streams) {
+    }
+
+    private LoadHarness() {
+    }
+
+    /**
+     * Runs {@code threads} independent generated streams concurrently.
+     */
+    public static LoadReport run(LoadTarget target, WorkloadSpec spec, int threads, int operationsPerThread)
+            throws InterruptedException {
+        if (threads <= 0 || operationsPerThread <= 0) {
+            throw new IllegalArgumentException("threads and operationsPerThread must be > 0");
+        }
+        List<Source> sources = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            sources.add(new GeneratedSource(new WorkloadGenerator(spec, t), operationsPerThread, null));
+        }
+        return execute(target, spec, sources);
+    }
+
+    /**
+     * Same as {@link #run}, and records the commands each worker sent to the target,
+     * including rejected ones, in the order it sent them.
+     */
+    public static Recording record(LoadTarget target, WorkloadSpec spec, int threads, int operationsPerThread)
+            throws InterruptedException {
+        if (threads <= 0 || operationsPerThread <= 0) {
+            throw new IllegalArgumentException("threads and operationsPerThread must be > 0");
+        }
+        List<Source> sources = new ArrayList<>();
+        List<List<StockCommand>> streams = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<StockCommand> stream = new ArrayList<>(operationsPerThread);
+            sources.add(new GeneratedSource(new WorkloadGenerator(spec, t), operationsPerThread, stream));
+            streams.add(Collections.unmodifiableList(stream));
+        }
+        LoadReport report = execute(target, spec, sources);
+        return new Recording(report, Collections.unmodifiableList(streams));
+    }
+
+    /**
+     * Generates the first stream of {@code spec} without applying it. Nothing is
+     * rejected offline, so the stream is not the one a worker would send to a real
+     * target; use {@link #record} for that.
+     */
+    public static List<StockCommand> generate(WorkloadSpec spec, int operations) {
+        WorkloadGenerator generator = new WorkloadGenerator(spec, 0);
+        List<StockCommand> trace = new ArrayList<>(operations);
+        for (int i = 0; i < operations; i++) {
+            trace.add(generator.next());
+        }
+        return trace;
+    }
+
+    /**
+     * Applies a captured trace in order on the calling thread.
+     */
+    public static LoadReport replay(LoadTarget target, WorkloadSpec spec, List<StockCommand> trace)
+            throws InterruptedException {
+        return execute(target, spec, List.of(new TraceSource(trace)));
+    }
+
+    /**
+     * Sends each recorded stream again, one thread per stream, in recorded order.
+     */
+    public static LoadReport replay(LoadTarget target, WorkloadSpec spec, Recording recording)
+            throws InterruptedException {
+        List<Source> sources = new ArrayList<>();
+        for (List<StockCommand> stream : recording.streams()) {
+            sources.add(new TraceSource(stream));
+        }
+        return execute(target, spec, sources);
+    }
+
+    private static LoadReport execute(LoadTarget target, WorkloadSpec spec, List<Source> sources)
+            throws InterruptedException {
+        Map<String, Integer> skuIndex = new ConcurrentHashMap<>();
+        for (int i = 0; i < spec.skuCount(); i++) {
+            String productId = WorkloadSpec.skuId(i);
+            target.apply(new StockCommand.Create(productId, "WH-1", spec.initialOnHand(), 0, spec.maxCapacity()));
+            skuIndex.put(productId, i);
+        }
+
+        AtomicLongArray onHandDelta = new AtomicLongArray(spec.skuCount());
+        ConcurrentMap<String, LongAdder> rejections = new ConcurrentHashMap<>();
+        long[][] latencies = new long[sources.size()][];
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Runnable> workers = new ArrayList<>();
+
+        for (int t = 0; t < sources.size(); t++) {
+            Source source = sources.get(t);
+            long[] samples = new long[source.size()];
+            latencies[t] = samples;
+            workers.add(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < samples.length; i++) {
+                        StockCommand command = source.next();
+                        long begin = System.nanoTime();
+                        try {
+                            target.apply(command);
+                            long delta = onHandDelta(command);
+                            if (delta != 0) {
+                                Integer idx = skuIndex.get(command.productId());
+                                if (idx != null) {
+                                    onHandDelta.addAndGet(idx, delta);
+                                }
+                            }
+                        } catch (IllegalStateException e) {
+                            rejections.computeIfAbsent(command.getClass().getSimpleName(), k -> new LongAdder())
+                                    .increment();
+                            source.rejected(command);
+                        }
+                        samples[i] = System.nanoTime() - begin;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+        }
+
+        long begin = System.nanoTime();
+        if (workers.size() == 1) {
+            // Single stream (e.g. a replay): run on the caller so the order is exactly the trace order.
+            start.countDown();
+            workers.get(0).run();
+        } else {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < workers.size(); t++) {
+                Thread thread = new Thread(workers.get(t), "load-client-" + t);
+                threads.add(thread);
+                thread.start();
+            }
+            begin = System.nanoTime();
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        return report(target, spec, latencies, rejections, onHandDelta, failure, System.nanoTime() - begin);
+    }
+
+    private static LoadReport report(LoadTarget target, WorkloadSpec spec, long[][] latencies,
+                                     Map<String, LongAdder> rejections, AtomicLongArray onHandDelta,
+                                     AtomicReference<RuntimeException> failure, long elapsedNanos) {
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        int total = 0;
+        for (long[] samples : latencies) {
+            total += samples.length;
+        }
+        long[] all = new long[total];
+        int pos = 0;
+        for (long[] samples : latencies) {
+            System.arraycopy(samples, 0, all, pos, samples.length);
+            pos += samples.length;
+        }
+        Arrays.sort(all);
+
+        Map<String, Long> rejectionsByType = new TreeMap<>();
+        rejections.forEach((type, count) -> rejectionsByType.put(type, count.sum()));
+
+        List<String> violations = new ArrayList<>();
+        for (int i = 0; i < spec.skuCount(); i++) {
+            StockSnapshot s = target.snapshot(WorkloadSpec.skuId(i));
+            if (s.onHand() < 0 || s.reserved() < 0 || s.reserved() > s.onHand() || s.onHand() > s.maxCapacity()) {
+                violations.add(s.productId() + ": inconsistent state " + s);
+            }
+            long expected = spec.initialOnHand() + onHandDelta.get(i);
+            if (s.onHand() != expected) {
+                violations.add(s.productId() + ": onHand " + s.onHand() + " but accepted operations imply " + expected);
+            }
+        }
+
+        return new LoadReport(total, elapsedNanos, percentile(all, 0.50), percentile(all, 0.99),
+                percentile(all, 0.999), Collections.unmodifiableMap(rejectionsByType),
+                Collections.unmodifiableList(violations));
+    }
+
+    private static long onHandDelta(StockCommand command) {
+        if (command instanceof StockCommand.AddStock c) {
+            return c.amount();
+        }
+        if (command instanceof StockCommand.RemoveDamaged c) {
+            return -c.amount();
+        }
+        if (command instanceof StockCommand.ShipReserved c) {
+            return -c.amount();
+        }
+        return 0;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int skus = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        WorkloadSpec spec = WorkloadSpec.orderMix(skus, 42);
+
+        System.out.println("InMemoryStockService:    "
+                + run(new InMemoryStockService(), spec, threads, ops));
+        try (PartitionedStockService partitioned =
+                     new PartitionedStockService(List.of("node-0", "node-1", "node-2", "node-3"), 128)) {
+            System.out.println("PartitionedStockService: " + run(partitioned, spec, threads, ops));
+        }
+    }
+
+    private interface Source {
+        int size();
+
+        StockCommand next();
+
+        void rejected(StockCommand command);
+    }
+
+    private static final class GeneratedSource implements Source {
+        private final WorkloadGenerator generator;
+        private final int size;
+        private final List<StockCommand> recorded;
+
+        // recorded may be null
+        GeneratedSource(WorkloadGenerator generator, int size, List<StockCommand> recorded) {
+            this.generator = generator;
+            this.size = size;
+            this.recorded = recorded;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public StockCommand next() {
+            StockCommand command = generator.next();
+            if (recorded != null) {
+                recorded.add(command);
+            }
+            return command;
+        }
+
+        @Override
+        public void rejected(StockCommand command) {
+            generator.rejected(command);
+        }
+    }
+
+    private static final class TraceSource implements Source {
+        private final List<StockCommand> trace;
+        private int next;
+
+        TraceSource(List<StockCommand> trace) {
+            this.trace = trace;
+        }
+
+        @Override
+        public int size() {
+            return trace.size();
+        }
+
+        @Override
+        public StockCommand next() {
+            return trace.get(next++);
+        }
+
+        @Override
+        public void rejected(StockCommand command) {
+            // A captured trace is replayed as-is.
+        }
+    }
+}
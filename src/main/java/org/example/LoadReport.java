@@ -0,0 +1,48 @@
+package org.example;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a {@link LoadHarness} run.
+ *
+ * @param operations          commands applied (accepted + rejected)
+ * @param elapsedNanos        wall-clock duration of the run
+ * @param p50Nanos            median latency of one command
+ * @param p99Nanos            99th percentile latency
+ * @param p999Nanos           99.9th percentile latency
+ * @param rejectionsByType    rejected commands per command type
+ * @param invariantViolations descriptions of SKUs whose final state is inconsistent
+ */
+public record LoadReport(long operations,
+                         long elapsedNanos,
+                         long p50Nanos,
+                         long p99Nanos,
+                         long p999Nanos,
+                         Map<String, Long> rejectionsByType,
+                         List<String> invariantViolations) {
+
+    public double throughputPerSecond() {
+        return elapsedNanos == 0 ? 0 : operations * 1e9 / elapsedNanos;
+    }
+
+    public long rejections() {
+        long total = 0;
+        for (long count : rejectionsByType.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public double rejectionRate() {
+        return operations == 0 ? 0 : (double) rejections() / operations;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LoadReport{ops=%d, throughput=%.0f/s, p50=%dns, p99=%dns, p99.9=%dns, "
+                        + "rejectionRate=%.2f%%, rejections=%s, invariantViolations=%d}",
+                operations, throughputPerSecond(), p50Nanos, p99Nanos, p999Nanos,
+                rejectionRate() * 100, rejectionsByType, invariantViolations.size());
+    }
+}
@@ -0,0 +1,22 @@
+package org.example;
+
+/**
+ * A {@link ProductStock}-based store that {@link LoadHarness} can drive.
+ * Implementations must be safe for use from multiple threads.
+ */
+public interface LoadTarget {
+
+    /**
+     * Applies a command.
+     *
+     * @throws IllegalStateException if the store rejects it (as ProductStock would)
+     */
+    void apply(StockCommand command);
+
+    /**
+     * Returns the current state of a product.
+     *
+     * @throws IllegalStateException if the product is unknown
+     */
+    StockSnapshot snapshot(String productId);
+}
@@ -0,0 +1,67 @@
+package org.example;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Time-ordered index of lots across many {@link LotTrackedStock}s.
+ * <p>
+ * Lots register on receipt and deregister when fully shipped or removed, so the index
+ * only holds lots that still have stock. {@link ExpirySweeper} polls it from the
+ * earliest expiry onwards, touching only lots that are actually expired.
+ */
+public final class LotExpiryIndex {
+
+    private static final Comparator<Key> ORDER = Comparator.comparing(Key::expiry)
+            .thenComparingLong(Key::ownerId)
+            .thenComparing(Key::lotId);
+
+    private final ConcurrentSkipListMap<Key, LotTrackedStock> lots = new ConcurrentSkipListMap<>(ORDER);
+
+    void add(LotTrackedStock owner, String lotId, LocalDate expiry) {
+        lots.put(new Key(expiry, owner.ownerId(), lotId), owner);
+    }
+
+    void remove(LotTrackedStock owner, String lotId, LocalDate expiry) {
+        lots.remove(new Key(expiry, owner.ownerId(), lotId));
+    }
+
+    /**
+     * Removes and returns the earliest lot whose expiry is before {@code asOf}, or null.
+     */
+    Map.Entry<Key, LotTrackedStock> pollExpired(LocalDate asOf) {
+        while (true) {
+            Map.Entry<Key, LotTrackedStock> first = lots.firstEntry();
+            if (first == null || !first.getKey().expiry().isBefore(asOf)) {
+                return null;
+            }
+            if (lots.remove(first.getKey(), first.getValue())) {
+                return first;
+            }
+        }
+    }
+
+    /**
+     * Number of lots with stock that are tracked.
+     */
+    public int size() {
+        return lots.size();
+    }
+
+    /**
+     * Earliest expiry of any tracked lot, or null if none.
+     */
+    public LocalDate earliestExpiry() {
+        Map.Entry<Key, LotTrackedStock> first = lots.firstEntry();
+        return first == null ? null : first.getKey().expiry();
+    }
+
+    /**
+     * Lots are keyed by their owning stock rather than by productId, since the same
+     * product at different locations is tracked by different stocks.
+     */
+    record Key(LocalDate expiry, long ownerId, String lotId) {
+    }
+}
@@ -0,0 +1,264 @@
+package org.example;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ProductStock} whose on-hand quantity is broken down into lots with expiry dates.
+ * <p>
+ * All quantity checks and the aggregate {@code onHand}/{@code reserved} bookkeeping are
+ * delegated to the wrapped ProductStock; this class only keeps the lot breakdown in
+ * step, so that the sum of all lot quantities always equals {@code getOnHand()}.
+ * Reservations are not bound to lots. Shipments and unspecified damage consume lots
+ * first-expired-first-out (FEFO); a lot's expiry is the last day it may be shipped, so
+ * {@link #shipReserved(int, LocalDate)} first removes lots expired as of the shipping
+ * date instead of relying on a sweep having run. Expired lots are removed with
+ * {@link ProductStock#removeDamaged} semantics, either directly via {@link #expire}
+ * or in bulk by an {@link ExpirySweeper} over a shared {@link LotExpiryIndex}.
+ * <p>
+ * All methods are synchronized on this object.
+ */
+public class LotTrackedStock {
+
+    private static final Comparator<Lot> FEFO = Comparator.comparing((Lot lot) -> lot.expiry)
+            .thenComparing(lot -> lot.lotId);
+
+    private static final AtomicLong OWNER_IDS = new AtomicLong();
+
+    private final long ownerId = OWNER_IDS.incrementAndGet();
+    private final ProductStock stock;
+    private final LotExpiryIndex index;
+    private final TreeSet<Lot> byExpiry = new TreeSet<>(FEFO);
+    private final Map<String, Lot> byId = new HashMap<>();
+
+    /**
+     * @param stock the product; must have no on-hand stock yet, since it has no lots
+     * @param index shared expiry index to register lots in, or null
+     */
+    public LotTrackedStock(ProductStock stock, LotExpiryIndex index) {
+        if (stock == null) {
+            throw new IllegalArgumentException("stock must not be null");
+        }
+        if (stock.getOnHand() != 0) {
+            throw new IllegalArgumentException("existing on-hand stock must be received as lots");
+        }
+        this.stock = stock;
+        this.index = index;
+    }
+
+    public String getProductId() {
+        return stock.getProductId();
+    }
+
+    // Identity of this stock in a LotExpiryIndex.
+    long ownerId() {
+        return ownerId;
+    }
+
+    public synchronized int getOnHand() {
+        return stock.getOnHand();
+    }
+
+    public synchronized int getReserved() {
+        return stock.getReserved();
+    }
+
+    public synchronized int getAvailable() {
+        return stock.getAvailable();
+    }
+
+    public synchronized boolean isReorderNeeded() {
+        return stock.isReorderNeeded();
+    }
+
+    /**
+     * Lots with stock, earliest expiry first.
+     */
+    public synchronized List<StockLot> getLots() {
+        List<StockLot> lots = new ArrayList<>(byExpiry.size());
+        for (Lot lot : byExpiry) {
+            lots.add(lot.toStockLot(lot.quantity));
+        }
+        return lots;
+    }
+
+    /**
+     * Receives stock into a lot. Receiving more of an existing lot adds to it.
+     *
+     * @throws IllegalArgumentException if the lot exists with a different expiry
+     * @throws IllegalStateException    if maxCapacity would be exceeded
+     */
+    public synchronized void receive(String lotId, LocalDate expiry, int amount) {
+        if (lotId == null || lotId.isBlank()) {
+            throw new IllegalArgumentException("lotId must not be null or blank");
+        }
+        if (expiry == null) {
+            throw new IllegalArgumentException("expiry must not be null");
+        }
+        Lot lot = byId.get(lotId);
+        if (lot != null && !lot.expiry.equals(expiry)) {
+            throw new IllegalArgumentException("Lot " + lotId + " already exists with expiry " + lot.expiry);
+        }
+        stock.addStock(amount);
+        if (lot == null) {
+            lot = new Lot(lotId, expiry);
+            byId.put(lotId, lot);
+            byExpiry.add(lot);
+            if (index != null) {
+                index.add(this, lotId, expiry);
+            }
+        }
+        lot.quantity += amount;
+    }
+
+    public synchronized void reserve(int amount) {
+        stock.reserve(amount);
+    }
+
+    public synchronized void releaseReservation(int amount) {
+        stock.releaseReservation(amount);
+    }
+
+    /**
+     * Ships reserved stock on {@code asOf}: lots expired by then are removed first
+     * (see {@link #expire}), then the shipment takes the earliest-expiring remaining lots.
+     * The expired lots stay removed even if the shipment is then rejected, e.g. because
+     * removing them cut the reservation back.
+     *
+     * @return the quantities taken from each lot
+     */
+    public synchronized List<StockLot> shipReserved(int amount, LocalDate asOf) {
+        if (asOf == null) {
+            throw new IllegalArgumentException("asOf must not be null");
+        }
+        expire(asOf);
+        return shipReserved(amount);
+    }
+
+    /**
+     * Ships reserved stock, taking it from the earliest-expiring lots without checking
+     * their expiry; only use it where expired lots are swept before shipping.
+     *
+     * @return the quantities taken from each lot
+     */
+    public synchronized List<StockLot> shipReserved(int amount) {
+        stock.shipReserved(amount);
+        return consumeFefo(amount);
+    }
+
+    /**
+     * Removes damaged stock from the earliest-expiring lots, expired or not (expired
+     * lots are written off anyway, so nothing leaves the warehouse past its date).
+     *
+     * @return the quantities taken from each lot
+     */
+    public synchronized List<StockLot> removeDamaged(int amount) {
+        stock.removeDamaged(amount);
+        return consumeFefo(amount);
+    }
+
+    /**
+     * Removes damaged stock from one lot.
+     */
+    public synchronized void removeDamaged(String lotId, int amount) {
+        Lot lot = byId.get(lotId);
+        if (lot == null) {
+            throw new IllegalStateException("Unknown lot: " + lotId);
+        }
+        if (amount > lot.quantity) {
+            throw new IllegalStateException("Cannot remove more than the lot quantity");
+        }
+        stock.removeDamaged(amount);
+        take(lot, amount);
+    }
+
+    /**
+     * Removes every lot whose expiry is before {@code asOf}.
+     * Reservations exceeding the remaining on-hand stock are cut back, as in removeDamaged.
+     *
+     * @return the expired lots and the quantities removed
+     */
+    public synchronized List<StockLot> expire(LocalDate asOf) {
+        List<StockLot> expired = new ArrayList<>();
+        Iterator<Lot> it = byExpiry.iterator();
+        while (it.hasNext()) {
+            Lot lot = it.next();
+            if (!lot.expiry.isBefore(asOf)) {
+                break;
+            }
+            expired.add(lot.toStockLot(lot.quantity));
+            stock.removeDamaged(lot.quantity);
+            it.remove();
+            byId.remove(lot.lotId);
+            if (index != null) {
+                index.remove(this, lot.lotId, lot.expiry);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Removes one lot if it is expired as of {@code asOf}. Used by {@link ExpirySweeper}.
+     *
+     * @return units removed (0 if the lot is gone or not expired)
+     */
+    synchronized int expireLot(String lotId, LocalDate asOf) {
+        Lot lot = byId.get(lotId);
+        if (lot == null || !lot.expiry.isBefore(asOf)) {
+            return 0;
+        }
+        int quantity = lot.quantity;
+        stock.removeDamaged(quantity);
+        byExpiry.remove(lot);
+        byId.remove(lotId);
+        return quantity;
+    }
+
+    // Caller holds the lock; amount <= onHand before the aggregate change, so lots cover it.
+    private List<StockLot> consumeFefo(int amount) {
+        List<StockLot> taken = new ArrayList<>();
+        int remaining = amount;
+        while (remaining > 0) {
+            Lot lot = byExpiry.first();
+            int n = Math.min(remaining, lot.quantity);
+            taken.add(lot.toStockLot(n));
+            take(lot, n);
+            remaining -= n;
+        }
+        return taken;
+    }
+
+    // Caller holds the lock.
+    private void take(Lot lot, int amount) {
+        lot.quantity -= amount;
+        if (lot.quantity == 0) {
+            byExpiry.remove(lot);
+            byId.remove(lot.lotId);
+            if (index != null) {
+                index.remove(this, lot.lotId, lot.expiry);
+            }
+        }
+    }
+
+    private static final class Lot {
+        final String lotId;
+        final LocalDate expiry;
+        int quantity;
+
+        Lot(String lotId, LocalDate expiry) {
+            this.lotId = lotId;
+            this.expiry = expiry;
+        }
+
+        StockLot toStockLot(int qty) {
+            return new StockLot(lotId, expiry, qty);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package org.example;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * {@link LoadTarget} decorator that remembers recent on-hand movements per SKU, so that
+ * the on-hand quantity can be reconstructed as of a recent point in time.
+ * <p>
+ * Every command that changes on-hand stock (Create, AddStock, RemoveDamaged,
+ * ShipReserved) is applied and logged while holding the SKU's log, and
+ * {@link #onHandAsOf} reads the current state and the log under the same lock, so a
+ * concurrent mutation is either in both or in neither. The delegate is never called
+ * inside a map operation, so a slow SKU only holds up its own callers. Other commands
+ * pass straight through.
+ * <p>
+ * Movements are kept for {@code retention}: a SKU's log is compacted when it fills up,
+ * and at most once per retention period the first on-hand mutation sweeps every log
+ * (as {@link #trim()} does) and drops the ones with nothing left in them. Memory is
+ * therefore proportional to the movements within the last two retention periods, not
+ * to the number of SKUs.
+ */
+public class MovementTrackingStockService implements LoadTarget {
+
+    private final LoadTarget delegate;
+    private final Clock clock;
+    private final long retentionMillis;
+    private final ConcurrentMap<String, Movements> logs = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepAt;
+
+    /**
+     * @param delegate  the store to apply commands to (must not be null)
+     * @param clock     source of movement timestamps (must not be null)
+     * @param retention how far back {@link #onHandAsOf} can look (must be > 0)
+     */
+    public MovementTrackingStockService(LoadTarget delegate, Clock clock, Duration retention) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate must not be null");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("clock must not be null");
+        }
+        if (retention == null || retention.isNegative() || retention.isZero()) {
+            throw new IllegalArgumentException("retention must be > 0");
+        }
+        this.delegate = delegate;
+        this.clock = clock;
+        this.retentionMillis = retention.toMillis();
+        this.nextSweepAt = new AtomicLong(clock.millis() + retentionMillis);
+    }
+
+    @Override
+    public void apply(StockCommand command) {
+        if (command == null) {
+            throw new IllegalArgumentException("command must not be null");
+        }
+        int delta = onHandDelta(command);
+        if (delta == 0) {
+            delegate.apply(command);
+            return;
+        }
+        long now = clock.millis();
+        withLog(command.productId(), log -> {
+            delegate.apply(command);
+            log.add(now, delta, false, now - retentionMillis);
+            return null;
+        });
+        sweepIfDue(now);
+    }
+
+    @Override
+    public StockSnapshot snapshot(String productId) {
+        return delegate.snapshot(productId);
+    }
+
+    /**
+     * Corrects on-hand stock by {@code delta} and logs the correction as of
+     * {@code effectiveAt} rather than now, so that it is part of the reconstructed
+     * state from that moment on. Later {@link #onHandAsOf} calls for earlier moments
+     * report themselves as superseded.
+     *
+     * @return the applied command (AddStock or RemoveDamaged)
+     * @throws IllegalArgumentException if delta is 0
+     * @throws IllegalStateException    if the product is unknown or ProductStock rejects it
+     */
+    public StockCommand adjust(String productId, int delta, long effectiveAt) {
+        if (delta == 0) {
+            throw new IllegalArgumentException("delta must not be 0");
+        }
+        StockCommand command = delta > 0
+                ? new StockCommand.AddStock(productId, delta)
+                : new StockCommand.RemoveDamaged(productId, -delta);
+        long now = clock.millis();
+        withLog(productId, log -> {
+            delegate.apply(command);
+            log.add(effectiveAt, delta, true, now - retentionMillis);
+            return null;
+        });
+        sweepIfDue(now);
+        return command;
+    }
+
+    /**
+     * Records that the product was counted at {@code countedAt} without changing its
+     * stock (the count matched, or its correction was rejected). Like {@link #adjust},
+     * it makes later {@link #onHandAsOf} calls for earlier moments report themselves as
+     * superseded, so an older count cannot overwrite it.
+     */
+    public void markCounted(String productId, long countedAt) {
+        if (productId == null) {
+            throw new IllegalArgumentException("productId must not be null");
+        }
+        withLog(productId, log -> {
+            log.markAdjusted(countedAt);
+            return null;
+        });
+    }
+
+    /**
+     * Reconstructs a product's on-hand stock as of {@code epochMillis}: the current
+     * quantity minus every movement logged after that moment.
+     *
+     * @return the reconstruction, or null if the moment is older than the retention period
+     * @throws IllegalStateException if the product is unknown
+     */
+    public AsOf onHandAsOf(String productId, long epochMillis) {
+        long horizon = clock.millis() - retentionMillis;
+        if (epochMillis < horizon) {
+            return null;
+        }
+        return withLog(productId, log -> {
+            StockSnapshot current = delegate.snapshot(productId);
+            AsOf result = new AsOf(current.location(), current.onHand() - log.sumAfter(epochMillis),
+                    log.lastAdjustment > epochMillis);
+            log.trim(horizon);
+            return result;
+        });
+    }
+
+    /**
+     * Compacts every log and drops the ones with nothing left within the retention period.
+     */
+    public void trim() {
+        long horizon = clock.millis() - retentionMillis;
+        logs.forEach((productId, log) -> {
+            synchronized (log) {
+                if (!log.dropped && !log.trim(horizon)) {
+                    drop(productId, log);
+                }
+            }
+        });
+    }
+
+    /**
+     * Number of SKUs with a movement log.
+     */
+    public int trackedCount() {
+        return logs.size();
+    }
+
+    /**
+     * Runs {@code action} holding the product's log, creating the log if needed and
+     * dropping it again if the action leaves it empty (e.g. a rejected command).
+     */
+    private <T> T withLog(String productId, Function<Movements, T> action) {
+        while (true) {
+            Movements log = logs.computeIfAbsent(productId, id -> new Movements());
+            synchronized (log) {
+                if (log.dropped) {
+                    // Removed by a sweep after we looked it up; take the new one.
+                    continue;
+                }
+                try {
+                    return action.apply(log);
+                } finally {
+                    if (log.isEmpty()) {
+                        drop(productId, log);
+                    }
+                }
+            }
+        }
+    }
+
+    // Caller holds the log.
+    private void drop(String productId, Movements log) {
+        log.dropped = true;
+        logs.remove(productId, log);
+    }
+
+    private void sweepIfDue(long now) {
+        long due = nextSweepAt.get();
+        if (now >= due && nextSweepAt.compareAndSet(due, now + retentionMillis)) {
+            trim();
+        }
+    }
+
+    private static int onHandDelta(StockCommand command) {
+        if (command instanceof StockCommand.Create c) {
+            return c.onHand();
+        }
+        if (command instanceof StockCommand.AddStock c) {
+            return c.amount();
+        }
+        if (command instanceof StockCommand.RemoveDamaged c) {
+            return -c.amount();
+        }
+        if (command instanceof StockCommand.ShipReserved c) {
+            return -c.amount();
+        }
+        return 0;
+    }
+
+    /**
+     * A product's stock reconstructed as of a past moment.
+     *
+     * @param location   the product's current location
+     * @param onHand     on-hand quantity at that moment
+     * @param superseded true if an {@link #adjust adjustment} or {@link #markCounted count}
+     *                   effective after that moment exists
+     */
+    public record AsOf(String location, int onHand, boolean superseded) {
+    }
+
+    /**
+     * Movement timestamps and deltas in parallel arrays. Adjustments are logged with
+     * past timestamps, so entries are not necessarily in time order.
+     * Guarded by its own monitor; a dropped log is no longer in the map and must not be used.
+     */
+    private static final class Movements {
+        long[] times = new long[4];
+        int[] deltas = new int[4];
+        int size;
+        long lastAdjustment = Long.MIN_VALUE;
+        boolean dropped;
+
+        void add(long at, int delta, boolean adjustment, long horizon) {
+            if (size == times.length) {
+                trim(horizon);
+                if (size == times.length) {
+                    times = Arrays.copyOf(times, size * 2);
+                    deltas = Arrays.copyOf(deltas, size * 2);
+                }
+            }
+            times[size] = at;
+            deltas[size] = delta;
+            size++;
+            if (adjustment) {
+                markAdjusted(at);
+            }
+        }
+
+        void markAdjusted(long at) {
+            if (at > lastAdjustment) {
+                lastAdjustment = at;
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0 && lastAdjustment == Long.MIN_VALUE;
+        }
+
+        int sumAfter(long epochMillis) {
+            int sum = 0;
+            for (int i = 0; i < size; i++) {
+                if (times[i] > epochMillis) {
+                    sum += deltas[i];
+                }
+            }
+            return sum;
+        }
+
+        /**
+         * Drops movements before {@code horizon}.
+         *
+         * @return false if nothing worth keeping is left
+         */
+        boolean trim(long horizon) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (times[i] >= horizon) {
+                    times[kept] = times[i];
+                    deltas[kept] = deltas[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            return size > 0 || lastAdjustment >= horizon;
+        }
+    }
+}
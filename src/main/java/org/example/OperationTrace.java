@@ -0,0 +1,66 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Captured sequence of {@link StockCommand}s stored as a file:
+ * a 4-byte magic number followed by {@link StockWireCodec} messages.
+ */
+public final class OperationTrace {
+
+    private static final int MAGIC = 0x53544B54; // "STKT"
+
+    private OperationTrace() {
+    }
+
+    public static void write(Path file, List<StockCommand> commands) throws IOException {
+        StockWireCodec codec = new StockWireCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        buffer.putInt(MAGIC);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (StockCommand command : commands) {
+                try {
+                    codec.encode(command, buffer);
+                } catch (BufferOverflowException e) {
+                    drain(channel, buffer);
+                    codec.encode(command, buffer);
+                }
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    public static List<StockCommand> read(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < 4 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not an operation trace: " + file);
+        }
+        StockWireCodec codec = new StockWireCodec();
+        List<StockCommand> commands = new ArrayList<>();
+        try {
+            while (buffer.hasRemaining()) {
+                commands.add(codec.decodeCommand(buffer));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt operation trace at byte " + buffer.position() + ": " + file, e);
+        }
+        return commands;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,93 @@
+package org.example;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process harness that measures how {@link PartitionedStockService} throughput
+ * scales with the number of nodes.
+ * <p>
+ * For each node count, a fresh service is loaded with {@code skuCount} SKUs and
+ * {@code clients} threads issue reserve/release pairs against random SKUs for the
+ * given duration. Run {@link #main} for a quick table.
+ */
+public final class PartitionThroughputHarness {
+
+    private PartitionThroughputHarness() {
+    }
+
+    /**
+     * Runs the workload against a service with {@code nodeCount} nodes.
+     *
+     * @return completed operations per second
+     */
+    public static double measure(int nodeCount, int clients, int skuCount, Duration duration)
+            throws InterruptedException {
+        if (nodeCount <= 0 || clients <= 0 || skuCount <= 0) {
+            throw new IllegalArgumentException("nodeCount, clients and skuCount must be > 0");
+        }
+        List<String> nodeIds = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            nodeIds.add("node-" + i);
+        }
+        try (PartitionedStockService service = new PartitionedStockService(nodeIds, 128)) {
+            for (int i = 0; i < skuCount; i++) {
+                service.apply(new StockCommand.Create(skuId(i), "WH-1", 1_000_000, 0, 1_000_000));
+            }
+
+            LongAdder ops = new LongAdder();
+            CountDownLatch start = new CountDownLatch(1);
+            long deadline = System.nanoTime() + duration.toNanos();
+            List<Thread> threads = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                Thread t = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    while (System.nanoTime() < deadline) {
+                        String productId = skuId(random.nextInt(skuCount));
+                        service.reserve(productId, 1);
+                        service.releaseReservation(productId, 1);
+                        ops.add(2);
+                    }
+                }, "partition-client-" + c);
+                threads.add(t);
+                t.start();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread t : threads) {
+                t.join();
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            return ops.sum() / seconds;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int skus = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 3);
+
+        double baseline = 0;
+        System.out.printf("%-6s %14s %8s%n", "nodes", "ops/s", "speedup");
+        for (int nodes = 1; nodes <= 8; nodes *= 2) {
+            double throughput = measure(nodes, clients, skus, duration);
+            if (nodes == 1) {
+                baseline = throughput;
+            }
+            System.out.printf("%-6d %14.0f %8.2f%n", nodes, throughput, throughput / baseline);
+        }
+    }
+
+    private static String skuId(int i) {
+        return "SKU-" + i;
+    }
+}
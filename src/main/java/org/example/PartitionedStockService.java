@@ -0,0 +1,323 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Stock service that partitions SKUs across in-process nodes by consistent hashing.
+ * <p>
+ * Each node owns a shard of {@link ProductStock}s and processes every operation on
+ * its shard on a single thread, so no per-SKU locking is needed and nodes scale
+ * independently. Operations are routed to the owner chosen by a
+ * {@link ConsistentHashRing}.
+ * <p>
+ * {@link #addNode(String)} rebalances live: the SKUs that now belong to the new node
+ * are moved in small chunks queued between regular operations on each old node.
+ * While the move is in progress, operations are still routed by the old ring; a node
+ * that no longer (or never did) hold a SKU forwards the operation to the SKU's owner
+ * under the new ring. Because the forward is queued after the SKU's hand-off, the
+ * new owner always sees the SKU before any forwarded operation on it.
+ */
+public class PartitionedStockService implements LoadTarget, AutoCloseable {
+
+    private static final int MIGRATION_CHUNK = 256;
+
+    private final int virtualNodes;
+    private final ConcurrentMap<String, Node> nodes = new ConcurrentHashMap<>();
+    // Ring used to route incoming operations.
+    private volatile ConsistentHashRing ring;
+    // Ring that SKUs are moving towards; same as ring when no rebalance is running.
+    private volatile ConsistentHashRing targetRing;
+    private CompletableFuture<Void> rebalance = CompletableFuture.completedFuture(null);
+    private volatile boolean closed;
+
+    /**
+     * @param nodeIds      initial node IDs (must not be empty)
+     * @param virtualNodes points per node on the hash ring (> 0)
+     */
+    public PartitionedStockService(Collection<String> nodeIds, int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+        this.ring = new ConsistentHashRing(nodeIds, virtualNodes);
+        this.targetRing = ring;
+        for (String id : ring.getNodeIds()) {
+            nodes.put(id, new Node(id));
+        }
+    }
+
+    /**
+     * Applies a command on the node owning its productId, waiting for the result.
+     * Exceptions thrown by ProductStock are rethrown unchanged.
+     */
+    @Override
+    public void apply(StockCommand command) {
+        if (command == null) {
+            throw new IllegalArgumentException("command must not be null");
+        }
+        await(applyAsync(command));
+    }
+
+    /**
+     * Asynchronous variant of {@link #apply(StockCommand)}.
+     */
+    public CompletableFuture<Void> applyAsync(StockCommand command) {
+        return submit(command.productId(), stocks -> {
+            ProductStock current = stocks.get(command.productId());
+            ProductStock after = command.applyTo(current);
+            if (current == null) {
+                stocks.put(command.productId(), after);
+            }
+            return null;
+        });
+    }
+
+    public void addStock(String productId, int amount) {
+        apply(new StockCommand.AddStock(productId, amount));
+    }
+
+    public void removeDamaged(String productId, int amount) {
+        apply(new StockCommand.RemoveDamaged(productId, amount));
+    }
+
+    public void reserve(String productId, int amount) {
+        apply(new StockCommand.Reserve(productId, amount));
+    }
+
+    public void releaseReservation(String productId, int amount) {
+        apply(new StockCommand.ReleaseReservation(productId, amount));
+    }
+
+    public void shipReserved(String productId, int amount) {
+        apply(new StockCommand.ShipReserved(productId, amount));
+    }
+
+    public int getAvailable(String productId) {
+        return read(productId, ProductStock::getAvailable);
+    }
+
+    public boolean isReorderNeeded(String productId) {
+        return read(productId, ProductStock::isReorderNeeded);
+    }
+
+    @Override
+    public StockSnapshot snapshot(String productId) {
+        return read(productId, StockSnapshot::of);
+    }
+
+    /**
+     * Node that currently routes operations for the given productId.
+     */
+    public String ownerOf(String productId) {
+        return ring.ownerOf(productId);
+    }
+
+    /**
+     * Adds a node and starts moving its share of SKUs to it in the background.
+     * Operations keep being served while SKUs move.
+     *
+     * @return a future completed once all SKUs have moved and routing uses the new ring
+     * @throws IllegalStateException if another rebalance is still running
+     */
+    public synchronized CompletableFuture<Void> addNode(String nodeId) {
+        if (closed) {
+            throw new IllegalStateException("PartitionedStockService is closed");
+        }
+        if (!rebalance.isDone()) {
+            throw new IllegalStateException("Rebalance already in progress");
+        }
+        if (nodes.containsKey(nodeId)) {
+            throw new IllegalArgumentException("Duplicate nodeId: " + nodeId);
+        }
+        ConsistentHashRing next = ring.withNode(nodeId);
+        Node added = new Node(nodeId);
+        nodes.put(nodeId, added);
+        targetRing = next;
+
+        List<CompletableFuture<Void>> moves = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            if (node != added) {
+                moves.add(node.migrateTo(next, added));
+            }
+        }
+        rebalance = CompletableFuture.allOf(moves.toArray(new CompletableFuture<?>[0]))
+                .thenRun(() -> ring = next);
+        return rebalance;
+    }
+
+    /**
+     * Number of SKUs held by each node (waits for each node's queue).
+     */
+    public Map<String, Integer> skuCountsByNode() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String id : targetRing.getNodeIds()) {
+            Node node = nodes.get(id);
+            counts.put(id, await(node.call(Map::size)));
+        }
+        return counts;
+    }
+
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    /**
+     * Stops accepting operations, lets a running rebalance finish so that no queued
+     * operation is forwarded to a node that has already stopped, then stops every node.
+     * Operations already queued still complete, successfully or with IllegalStateException.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        try {
+            rebalance.join();
+        } catch (CompletionException e) {
+            // Nothing left to wait for.
+        }
+        for (Node node : nodes.values()) {
+            node.executor.shutdown();
+        }
+    }
+
+    private <R> R read(String productId, Function<ProductStock, R> reader) {
+        return await(submit(productId, stocks -> {
+            ProductStock stock = stocks.get(productId);
+            if (stock == null) {
+                throw new IllegalStateException("Unknown productId: " + productId);
+            }
+            return reader.apply(stock);
+        }));
+    }
+
+    private <R> CompletableFuture<R> submit(String productId, Function<Map<String, ProductStock>, R> op) {
+        if (productId == null) {
+            throw new IllegalArgumentException("productId must not be null");
+        }
+        if (closed) {
+            throw new IllegalStateException("PartitionedStockService is closed");
+        }
+        Task<R> task = new Task<>(productId, op);
+        nodes.get(ring.ownerOf(productId)).execute(task);
+        return task.result;
+    }
+
+    private static <R> R await(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Task<R> {
+        final String productId;
+        final Function<Map<String, ProductStock>, R> op;
+        final CompletableFuture<R> result = new CompletableFuture<>();
+
+        Task(String productId, Function<Map<String, ProductStock>, R> op) {
+            this.productId = productId;
+            this.op = op;
+        }
+
+        void run(Map<String, ProductStock> stocks) {
+            try {
+                result.complete(op.apply(stocks));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private final class Node {
+        final String id;
+        final ExecutorService executor;
+        // Only touched from the executor thread.
+        final Map<String, ProductStock> stocks = new HashMap<>();
+
+        Node(String id) {
+            this.id = id;
+            this.executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "stock-node-" + id);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        void execute(Task<?> task) {
+            try {
+                executor.execute(() -> {
+                    if (!stocks.containsKey(task.productId)) {
+                        Node owner = nodes.get(targetRing.ownerOf(task.productId));
+                        if (owner != this) {
+                            owner.execute(task);
+                            return;
+                        }
+                    }
+                    task.run(stocks);
+                });
+            } catch (RejectedExecutionException e) {
+                // Closed; complete the task so that its caller does not wait forever.
+                task.result.completeExceptionally(new IllegalStateException("PartitionedStockService is closed"));
+            }
+        }
+
+        <R> CompletableFuture<R> call(Function<Map<String, ProductStock>, R> op) {
+            return CompletableFuture.supplyAsync(() -> op.apply(stocks), executor);
+        }
+
+        /**
+         * Hands over every SKU that {@code next} assigns to {@code target},
+         * MIGRATION_CHUNK SKUs per queued task.
+         */
+        CompletableFuture<Void> migrateTo(ConsistentHashRing next, Node target) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            executor.execute(() -> {
+                List<String> moving = new ArrayList<>();
+                for (String productId : stocks.keySet()) {
+                    if (next.ownerOf(productId).equals(target.id)) {
+                        moving.add(productId);
+                    }
+                }
+                moveChunk(moving, 0, target, done);
+            });
+            return done;
+        }
+
+        private void moveChunk(List<String> moving, int from, Node target, CompletableFuture<Void> done) {
+            int to = Math.min(moving.size(), from + MIGRATION_CHUNK);
+            List<ProductStock> chunk = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                ProductStock stock = stocks.remove(moving.get(i));
+                if (stock != null) {
+                    chunk.add(stock);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                target.executor.execute(() -> {
+                    for (ProductStock stock : chunk) {
+                        target.stocks.put(stock.getProductId(), stock);
+                    }
+                });
+            }
+            if (to == moving.size()) {
+                done.complete(null);
+            } else {
+                // Requeue so that regular operations can run between chunks.
+                executor.execute(() -> moveChunk(moving, to, target, done));
+            }
+        }
+    }
+}
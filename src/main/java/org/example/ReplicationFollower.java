@@ -0,0 +1,241 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Read replica of a {@link ReplicationPrimary}.
+ * <p>
+ * Applies the primary's journal in sequence order to its own {@link ProductStock}
+ * copies and serves reads from them. Lag is reported both in journal entries
+ * ({@link #getLagEntries()}) and in time ({@link #getLagMillis()}: how long ago,
+ * by the primary's clock, this follower was last known to be fully caught up).
+ * If a maximum lag is configured, reads fail instead of returning data staler than that.
+ * <p>
+ * If the primary has already dropped the start of its journal, the follower is
+ * bootstrapped from a snapshot of every SKU. Journal entries the snapshot of their
+ * SKU already reflects are skipped.
+ */
+public class ReplicationFollower implements AutoCloseable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final long maxLagMillis;
+    private final ConcurrentMap<String, ProductStock> stocks = new ConcurrentHashMap<>();
+    // Applier thread only.
+    private final JournalWire wire = new JournalWire();
+
+    private final Object progressLock = new Object();
+    private volatile long appliedSequence;
+    private volatile long knownHeadSequence;
+    private volatile long caughtUpAtMillis = -1;
+    private volatile boolean closed;
+    private volatile RuntimeException failure;
+
+    private ReplicationFollower(Socket socket, Duration maxLag) throws IOException {
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.maxLagMillis = maxLag == null ? Long.MAX_VALUE : maxLag.toMillis();
+        Thread applier = new Thread(this::applyLoop, "replication-follower-" + socket.getLocalPort());
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    /**
+     * Connects to a primary and starts replaying its journal, from sequence 1 or
+     * from a snapshot if the primary no longer holds the start of the journal.
+     *
+     * @param maxLag reads fail with IllegalStateException when lag exceeds this; null for no bound
+     */
+    public static ReplicationFollower connect(String host, int port, Duration maxLag) throws IOException {
+        if (maxLag != null && maxLag.isNegative()) {
+            throw new IllegalArgumentException("maxLag must be >= 0");
+        }
+        Socket socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        return new ReplicationFollower(socket, maxLag);
+    }
+
+    public int getAvailable(String productId) {
+        ProductStock stock = require(productId);
+        synchronized (stock) {
+            return stock.getAvailable();
+        }
+    }
+
+    public boolean isReorderNeeded(String productId) {
+        ProductStock stock = require(productId);
+        synchronized (stock) {
+            return stock.isReorderNeeded();
+        }
+    }
+
+    public StockSnapshot snapshot(String productId) {
+        ProductStock stock = require(productId);
+        synchronized (stock) {
+            return StockSnapshot.of(stock);
+        }
+    }
+
+    /**
+     * Sequence number of the last journal entry applied locally.
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Entries known to exist on the primary but not yet applied here.
+     */
+    public long getLagEntries() {
+        return Math.max(0, knownHeadSequence - appliedSequence);
+    }
+
+    /**
+     * Milliseconds since this follower was last known to match the primary,
+     * or Long.MAX_VALUE if it has never caught up.
+     */
+    public long getLagMillis() {
+        long caughtUpAt = caughtUpAtMillis;
+        if (caughtUpAt < 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, System.currentTimeMillis() - caughtUpAt);
+    }
+
+    /**
+     * Waits until the given sequence has been applied.
+     *
+     * @return true if reached, false on timeout or if the follower is closed
+     */
+    public boolean awaitSequence(long sequence, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (progressLock) {
+            while (appliedSequence < sequence && !closed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                progressLock.wait(Math.max(1, remaining / 1_000_000));
+            }
+            return appliedSequence >= sequence;
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * The error that stopped replication because the journal could not be applied
+     * (a gap, or a command the local state rejects), or null if there was none.
+     * The follower is closed when this is set.
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // already closed
+        }
+        synchronized (progressLock) {
+            progressLock.notifyAll();
+        }
+    }
+
+    private ProductStock require(String productId) {
+        if (getLagMillis() > maxLagMillis) {
+            throw new IllegalStateException("Replica lag exceeds " + maxLagMillis + " ms");
+        }
+        ProductStock stock = stocks.get(productId);
+        if (stock == null) {
+            throw new IllegalStateException("Unknown productId: " + productId);
+        }
+        return stock;
+    }
+
+    private void applyLoop() {
+        try {
+            // Applier thread only: sequence of the last command each bootstrapped SKU reflects.
+            Map<String, Long> bootstrapped = bootstrap();
+            long bootstrapEnd = bootstrapped.values().stream().mapToLong(Long::longValue).max().orElse(0);
+            while (!closed) {
+                long head = in.readLong();
+                long sentAt = in.readLong();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    long sequence = in.readLong();
+                    StockCommand command = wire.readCommand(in);
+                    if (sequence != appliedSequence + 1) {
+                        throw new IllegalStateException(
+                                "Journal gap: expected " + (appliedSequence + 1) + " got " + sequence);
+                    }
+                    if (sequence > bootstrapEnd || sequence > bootstrapped.getOrDefault(command.productId(), 0L)) {
+                        applyLocally(command);
+                    }
+                    appliedSequence = sequence;
+                }
+                knownHeadSequence = Math.max(knownHeadSequence, head);
+                if (appliedSequence >= head) {
+                    caughtUpAtMillis = sentAt;
+                }
+                out.writeLong(appliedSequence);
+                out.flush();
+                synchronized (progressLock) {
+                    progressLock.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            // Primary went away (or we are closing).
+        } catch (RuntimeException e) {
+            // The journal does not fit our state; stop rather than serve diverged data.
+            failure = e;
+        } finally {
+            close();
+        }
+    }
+
+    private Map<String, Long> bootstrap() throws IOException {
+        long from = in.readLong();
+        int count = in.readInt();
+        Map<String, Long> lastSequences = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            long lastSequence = in.readLong();
+            StockSnapshot snapshot = wire.readSnapshot(in);
+            stocks.put(snapshot.productId(), snapshot.toProductStock());
+            lastSequences.put(snapshot.productId(), lastSequence);
+        }
+        appliedSequence = from;
+        return lastSequences;
+    }
+
+    private void applyLocally(StockCommand command) {
+        if (command instanceof StockCommand.Create) {
+            stocks.put(command.productId(), command.applyTo(stocks.get(command.productId())));
+            return;
+        }
+        ProductStock stock = stocks.get(command.productId());
+        if (stock == null) {
+            throw new IllegalStateException("Journal references unknown productId: " + command.productId());
+        }
+        synchronized (stock) {
+            command.applyTo(stock);
+        }
+    }
+}
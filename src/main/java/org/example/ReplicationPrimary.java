@@ -0,0 +1,396 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Node that owns the authoritative {@link ProductStock} state and ships its
+ * ordered mutation journal to {@link ReplicationFollower}s over TCP.
+ * <p>
+ * Every successful {@link #apply} is appended to the journal with the next sequence
+ * number while the SKU is still locked, so the journal order matches the order in
+ * which mutations hit each SKU. Each connected follower has a sender thread that
+ * ships up to {@code batchSize} entries per frame without waiting for the previous
+ * frame to be acknowledged; acknowledgements arrive on a separate reader thread.
+ * An empty frame is sent after {@code heartbeat} of inactivity so idle followers
+ * can still prove they are current.
+ * <p>
+ * Only a window of the journal is kept in memory: entries every connected follower
+ * has acknowledged are dropped, and at most {@code maxJournalEntries} are retained
+ * even if a follower is stuck. A follower that connects after entries were dropped
+ * first receives a snapshot of every SKU, tagged with the sequence of the SKU's last
+ * journaled command, and then the journal tail. A connected follower that falls out
+ * of the window is disconnected and has to reconnect.
+ */
+public class ReplicationPrimary implements AutoCloseable {
+
+    // Entries are dropped from the journal in chunks of at least this many, so that
+    // trimming the list costs O(1) per append on average.
+    private static final int TRIM_CHUNK = 1024;
+    private static final int DEFAULT_MAX_JOURNAL_ENTRIES = 1 << 20;
+
+    private final ConcurrentMap<String, Slot> stocks = new ConcurrentHashMap<>();
+    private final Object createLock = new Object();
+
+    // Guarded by journalLock. journal.get(i) has sequence journalStart + i + 1.
+    private final Object journalLock = new Object();
+    private final List<StockCommand> journal = new ArrayList<>();
+    private long journalStart;
+    private long headSequence;
+
+    private final ServerSocket server;
+    private final int batchSize;
+    private final int maxJournalEntries;
+    private final long heartbeatMillis;
+    private final List<FollowerLink> links = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Starts listening on the loopback interface.
+     *
+     * @param port      TCP port, or 0 to pick a free one (see {@link #getPort()})
+     * @param batchSize maximum journal entries per shipped frame (> 0)
+     * @param heartbeat idle time after which an empty frame is sent (> 0)
+     */
+    public ReplicationPrimary(int port, int batchSize, Duration heartbeat) throws IOException {
+        this(port, batchSize, heartbeat, DEFAULT_MAX_JOURNAL_ENTRIES);
+    }
+
+    /**
+     * @param maxJournalEntries journal entries retained for lagging followers (> 0)
+     */
+    public ReplicationPrimary(int port, int batchSize, Duration heartbeat, int maxJournalEntries) throws IOException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be > 0");
+        }
+        if (heartbeat == null || heartbeat.isNegative() || heartbeat.isZero()) {
+            throw new IllegalArgumentException("heartbeat must be > 0");
+        }
+        if (maxJournalEntries <= 0) {
+            throw new IllegalArgumentException("maxJournalEntries must be > 0");
+        }
+        this.batchSize = batchSize;
+        this.maxJournalEntries = maxJournalEntries;
+        this.heartbeatMillis = heartbeat.toMillis();
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Applies a command to the local state and appends it to the journal.
+     * Rejected commands (ProductStock throws) are not journaled.
+     *
+     * @return the journal sequence number assigned to the command
+     */
+    public long apply(StockCommand command) {
+        if (command == null) {
+            throw new IllegalArgumentException("command must not be null");
+        }
+        if (closed) {
+            throw new IllegalStateException("ReplicationPrimary is closed");
+        }
+        if (command instanceof StockCommand.Create) {
+            synchronized (createLock) {
+                // The slot is published before the Create is journaled, so a follower
+                // bootstrapping from a head that covers the Create also finds the slot.
+                Slot slot = stocks.computeIfAbsent(command.productId(), Slot::new);
+                synchronized (slot) {
+                    try {
+                        slot.stock = command.applyTo(slot.stock);
+                    } catch (RuntimeException e) {
+                        if (slot.stock == null) {
+                            stocks.remove(command.productId(), slot);
+                        }
+                        throw e;
+                    }
+                    slot.lastSequence = append(command);
+                    return slot.lastSequence;
+                }
+            }
+        }
+        Slot slot = require(command.productId());
+        synchronized (slot) {
+            command.applyTo(slot.require());
+            slot.lastSequence = append(command);
+            return slot.lastSequence;
+        }
+    }
+
+    public int getAvailable(String productId) {
+        Slot slot = require(productId);
+        synchronized (slot) {
+            return slot.require().getAvailable();
+        }
+    }
+
+    public boolean isReorderNeeded(String productId) {
+        Slot slot = require(productId);
+        synchronized (slot) {
+            return slot.require().isReorderNeeded();
+        }
+    }
+
+    public StockSnapshot snapshot(String productId) {
+        Slot slot = require(productId);
+        synchronized (slot) {
+            return StockSnapshot.of(slot.require());
+        }
+    }
+
+    /**
+     * Sequence number of the last journaled command (0 if none).
+     */
+    public long getHeadSequence() {
+        synchronized (journalLock) {
+            return headSequence;
+        }
+    }
+
+    /**
+     * Number of journal entries currently held in memory.
+     */
+    public int getRetainedJournalEntries() {
+        synchronized (journalLock) {
+            return journal.size();
+        }
+    }
+
+    public int getFollowerCount() {
+        return links.size();
+    }
+
+    /**
+     * Lowest sequence acknowledged by any connected follower,
+     * or the head sequence if no follower is connected.
+     */
+    public long getMinAckedSequence() {
+        long min = getHeadSequence();
+        for (FollowerLink link : links) {
+            min = Math.min(min, link.ackedSequence);
+        }
+        return min;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // shutting down anyway
+        }
+        for (FollowerLink link : links) {
+            link.close();
+        }
+        synchronized (journalLock) {
+            journalLock.notifyAll();
+        }
+    }
+
+    private long append(StockCommand command) {
+        synchronized (journalLock) {
+            journal.add(command);
+            headSequence++;
+            trimJournal();
+            journalLock.notifyAll();
+            return headSequence;
+        }
+    }
+
+    // Caller holds journalLock. Drops entries every follower has, and any beyond the cap.
+    private void trimJournal() {
+        long keepFrom = headSequence;
+        for (FollowerLink link : links) {
+            keepFrom = Math.min(keepFrom, link.ackedSequence);
+        }
+        keepFrom = Math.max(keepFrom, headSequence - maxJournalEntries);
+        long drop = keepFrom - journalStart;
+        if (drop >= TRIM_CHUNK && drop * 2 >= journal.size() || journal.size() > maxJournalEntries + TRIM_CHUNK) {
+            journal.subList(0, (int) drop).clear();
+            journalStart = keepFrom;
+        }
+    }
+
+    private Slot require(String productId) {
+        Slot slot = stocks.get(productId);
+        if (slot == null) {
+            throw new IllegalStateException("Unknown productId: " + productId);
+        }
+        return slot;
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                FollowerLink link = new FollowerLink(socket);
+                links.add(link);
+                link.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    // Failed handshake of one follower; keep accepting others.
+                    continue;
+                }
+            }
+        }
+    }
+
+    private final class FollowerLink {
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+        // Sender thread only.
+        private final JournalWire wire = new JournalWire();
+        // Entries up to here can be dropped as far as this follower is concerned.
+        private volatile long ackedSequence;
+
+        FollowerLink(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+
+        void start() {
+            Thread sender = new Thread(this::sendLoop, "replication-sender-" + socket.getPort());
+            sender.setDaemon(true);
+            sender.start();
+            Thread ackReader = new Thread(this::ackLoop, "replication-acks-" + socket.getPort());
+            ackReader.setDaemon(true);
+            ackReader.start();
+        }
+
+        private void sendLoop() {
+            List<StockCommand> batch = new ArrayList<>(batchSize);
+            try {
+                long sent = bootstrap();
+                while (!closed) {
+                    long head;
+                    batch.clear();
+                    synchronized (journalLock) {
+                        if (headSequence == sent && !closed) {
+                            journalLock.wait(heartbeatMillis);
+                        }
+                        if (sent < journalStart) {
+                            throw new IOException("Follower fell behind the retained journal");
+                        }
+                        head = headSequence;
+                        long to = Math.min(head, sent + batchSize);
+                        batch.addAll(journal.subList((int) (sent - journalStart), (int) (to - journalStart)));
+                    }
+                    out.writeLong(head);
+                    out.writeLong(System.currentTimeMillis());
+                    out.writeInt(batch.size());
+                    for (StockCommand command : batch) {
+                        out.writeLong(++sent);
+                        wire.writeCommand(out, command);
+                    }
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                // Follower went away, fell behind (or we are closing).
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Sends the start frame: the sequence the journal will continue from and, if
+         * entries before it were dropped, a snapshot of every SKU.
+         *
+         * @return the sequence of the last entry the follower has after the start frame
+         */
+        private long bootstrap() throws IOException {
+            long from;
+            synchronized (journalLock) {
+                from = journalStart == 0 ? 0 : headSequence;
+                // Pins the journal from here until the first ack.
+                ackedSequence = from;
+            }
+            List<StockSnapshot> snapshots = new ArrayList<>();
+            List<Long> lastSequences = new ArrayList<>();
+            if (from != 0) {
+                for (Slot slot : stocks.values()) {
+                    synchronized (slot) {
+                        // No stock yet: its Create is journaled after from, or failed.
+                        if (slot.stock != null) {
+                            snapshots.add(StockSnapshot.of(slot.stock));
+                            lastSequences.add(slot.lastSequence);
+                        }
+                    }
+                }
+            }
+            out.writeLong(from);
+            out.writeInt(snapshots.size());
+            for (int i = 0; i < snapshots.size(); i++) {
+                out.writeLong(lastSequences.get(i));
+                wire.writeSnapshot(out, snapshots.get(i));
+            }
+            out.flush();
+            return from;
+        }
+
+        private void ackLoop() {
+            try {
+                while (!closed) {
+                    ackedSequence = in.readLong();
+                }
+            } catch (IOException e) {
+                // Follower went away (or we are closing).
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            links.remove(this);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // already closed
+            }
+        }
+    }
+
+    /**
+     * A product and the sequence of its last journaled command, both guarded by the slot.
+     * The stock is null until the product's first Create has been applied.
+     */
+    private static final class Slot {
+        final String productId;
+        ProductStock stock;
+        long lastSequence;
+
+        Slot(String productId) {
+            this.productId = productId;
+        }
+
+        ProductStock require() {
+            if (stock == null) {
+                throw new IllegalStateException("Unknown productId: " + productId);
+            }
+            return stock;
+        }
+    }
+}
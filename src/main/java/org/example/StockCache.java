@@ -0,0 +1,512 @@
+package org.example;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Read-through, write-behind cache of {@link ProductStock} state over a {@link StockStore}.
+ * <p>
+ * Missing SKUs are loaded from the store on first access. Mutations only mark the
+ * entry dirty; a background task writes each dirty SKU once per flush interval, so
+ * any number of mutations to the same SKU within an interval cost one store write.
+ * The cache holds at most {@code maxEntries} SKUs and evicts one by its
+ * {@link Eviction} policy when full; a dirty evicted SKU is kept as a pending write and
+ * written by the background flusher, early if {@value #PAGE_OUT_BATCH} are pending.
+ * {@link #close()} flushes everything that is still dirty.
+ * <p>
+ * Store loads and writes run outside the cache-wide lock, so a miss only delays other
+ * accesses to the same SKU; concurrent misses on one SKU share a single load.
+ */
+public class StockCache implements AutoCloseable {
+
+    /**
+     * How the cache picks a SKU to evict.
+     */
+    public enum Eviction {
+        /** Least recently used. */
+        LRU,
+        /**
+         * CLOCK with a small access counter per SKU: each access bumps it (up to 3), the
+         * sweeping hand decrements it, and the first SKU found at zero is evicted. SKUs
+         * touched often survive several sweeps, while a scan of one-off accesses does
+         * not push them out.
+         */
+        CLOCK
+    }
+
+    static final int PAGE_OUT_BATCH = 64;
+    private static final int MAX_FREQUENCY = 3;
+
+    private final StockStore store;
+    private final int maxEntries;
+
+    // Guarded by "this"; access-ordered for LRU. Lock order: this -> Entry.
+    private final LinkedHashMap<String, Entry> entries;
+    // CLOCK ring of cached entries by slot, and its hand; null for LRU. Guarded by "this".
+    private final Entry[] clock;
+    private int hand;
+    // Store loads in progress, guarded by "this".
+    private final Map<String, Loading> loading = new HashMap<>();
+    private final Set<Entry> dirtyEntries = ConcurrentHashMap.newKeySet();
+    // Snapshots on their way to the store: entries evicted before being flushed, and
+    // rows of a flush in progress. A row is removed only once the store has it, so a
+    // load never sees an older store state than the cache had.
+    private final ConcurrentMap<String, StockSnapshot> pendingWrites = new ConcurrentHashMap<>();
+    // Serializes flushes so rows for one SKU reach the store in order.
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher;
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile boolean closed;
+
+    private StockCache(StockStore store, int maxEntries, Eviction eviction) {
+        this.store = store;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, eviction == Eviction.LRU);
+        this.clock = eviction == Eviction.CLOCK ? new Entry[maxEntries] : null;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stock-cache-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Creates an LRU cache and starts its background flusher.
+     *
+     * @param store         backing store (must not be null)
+     * @param maxEntries    maximum number of cached SKUs (> 0)
+     * @param flushInterval delay between background flushes (> 0)
+     */
+    public static StockCache open(StockStore store, int maxEntries, Duration flushInterval) {
+        return open(store, maxEntries, flushInterval, Eviction.LRU);
+    }
+
+    /**
+     * Creates a cache with the given eviction policy and starts its background flusher.
+     */
+    public static StockCache open(StockStore store, int maxEntries, Duration flushInterval, Eviction eviction) {
+        if (store == null) {
+            throw new IllegalArgumentException("store must not be null");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be > 0");
+        }
+        if (flushInterval == null || flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("flushInterval must be > 0");
+        }
+        if (eviction == null) {
+            throw new IllegalArgumentException("eviction must not be null");
+        }
+        StockCache cache = new StockCache(store, maxEntries, eviction);
+        long millis = flushInterval.toMillis();
+        cache.flusher.scheduleWithFixedDelay(cache::backgroundFlush, millis, millis, TimeUnit.MILLISECONDS);
+        return cache;
+    }
+
+    /**
+     * Runs a read-only function against the cached stock.
+     *
+     * @throws IllegalStateException if the product is unknown to the cache and the store
+     */
+    public <R> R read(String productId, Function<ProductStock, R> reader) {
+        while (true) {
+            Entry entry = acquire(productId, true);
+            synchronized (entry) {
+                if (!entry.evicted) {
+                    entry.touch();
+                    return reader.apply(entry.stock);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a mutation to the cached stock and schedules it for write-behind.
+     * If the mutation throws, the exception propagates and nothing is marked dirty.
+     *
+     * @throws IllegalStateException if the product is unknown to the cache and the store
+     */
+    public void update(String productId, Consumer<ProductStock> mutation) {
+        while (true) {
+            Entry entry = acquire(productId, true);
+            synchronized (entry) {
+                if (!entry.evicted) {
+                    entry.touch();
+                    mutation.accept(entry.stock);
+                    markDirty(entry);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a new SKU (or replaces a cached one) and schedules it for write-behind.
+     */
+    public void put(ProductStock stock) {
+        if (stock == null) {
+            throw new IllegalArgumentException("stock must not be null");
+        }
+        ensureOpen();
+        Entry entry = newDirtyEntry(stock);
+        synchronized (this) {
+            Loading load = loading.get(stock.getProductId());
+            if (load != null) {
+                load.superseded = true;
+            }
+            pendingWrites.remove(stock.getProductId());
+            install(stock.getProductId(), entry);
+        }
+        pageOutIfNeeded();
+    }
+
+    /**
+     * Adds a SKU that must not exist yet, in the cache or in the store.
+     *
+     * @throws IllegalStateException if the productId already exists
+     */
+    public void create(ProductStock stock) {
+        if (stock == null) {
+            throw new IllegalArgumentException("stock must not be null");
+        }
+        String productId = stock.getProductId();
+        if (acquire(productId, false) != null) {
+            throw new IllegalStateException("productId already exists: " + productId);
+        }
+        Entry entry = newDirtyEntry(stock);
+        synchronized (this) {
+            ensureOpen();
+            if (entries.containsKey(productId) || loading.containsKey(productId)
+                    || pendingWrites.containsKey(productId)) {
+                dirtyEntries.remove(entry);
+                throw new IllegalStateException("productId already exists: " + productId);
+            }
+            install(productId, entry);
+        }
+        pageOutIfNeeded();
+    }
+
+    public int getAvailable(String productId) {
+        return read(productId, ProductStock::getAvailable);
+    }
+
+    public boolean isReorderNeeded(String productId) {
+        return read(productId, ProductStock::isReorderNeeded);
+    }
+
+    public void reserve(String productId, int amount) {
+        update(productId, s -> s.reserve(amount));
+    }
+
+    public void releaseReservation(String productId, int amount) {
+        update(productId, s -> s.releaseReservation(amount));
+    }
+
+    public void shipReserved(String productId, int amount) {
+        update(productId, s -> s.shipReserved(amount));
+    }
+
+    public void addStock(String productId, int amount) {
+        update(productId, s -> s.addStock(amount));
+    }
+
+    public void removeDamaged(String productId, int amount) {
+        update(productId, s -> s.removeDamaged(amount));
+    }
+
+    /**
+     * Number of SKUs currently held in memory.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Whether a SKU is currently held in memory. Does not count as an access.
+     */
+    public synchronized boolean contains(String productId) {
+        return entries.containsKey(productId);
+    }
+
+    /**
+     * Number of SKUs with changes not yet written to the store.
+     */
+    public int dirtyCount() {
+        return dirtyEntries.size() + pendingWrites.size();
+    }
+
+    /**
+     * Number of SKUs loaded from the store on a miss.
+     */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * Number of SKUs evicted to make room.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Writes every dirty SKU to the store, one row per SKU.
+     *
+     * @return number of rows written
+     */
+    public int flush() {
+        synchronized (flushLock) {
+            Iterator<Entry> it = dirtyEntries.iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                it.remove();
+                synchronized (entry) {
+                    if (entry.dirty) {
+                        pendingWrites.put(entry.stock.getProductId(), StockSnapshot.of(entry.stock));
+                        entry.dirty = false;
+                    }
+                }
+            }
+            List<StockSnapshot> batch = new ArrayList<>(pendingWrites.values());
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            // On failure the rows stay pending for the next attempt.
+            store.storeAll(batch);
+            for (StockSnapshot snapshot : batch) {
+                pendingWrites.remove(snapshot.productId(), snapshot);
+            }
+            return batch.size();
+        }
+    }
+
+    /**
+     * Stops the background flusher and writes all remaining dirty SKUs.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void backgroundFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Rows stay pending; retry on the next tick.
+        }
+    }
+
+    // Hands a full batch of evicted rows to the flusher instead of writing inline.
+    private void pageOutIfNeeded() {
+        if (pendingWrites.size() >= PAGE_OUT_BATCH && !closed) {
+            try {
+                flusher.execute(this::backgroundFlush);
+            } catch (RejectedExecutionException e) {
+                // Closing; close() flushes what is left.
+            }
+        }
+    }
+
+    /**
+     * Returns the cached entry, loading it on a miss.
+     *
+     * @return the entry, or null if the product is unknown and {@code required} is false
+     * @throws IllegalStateException if the product is unknown and {@code required} is true
+     */
+    private Entry acquire(String productId, boolean required) {
+        while (true) {
+            Loading load;
+            boolean loader;
+            synchronized (this) {
+                ensureOpen();
+                Entry entry = entries.get(productId);
+                if (entry != null) {
+                    return entry;
+                }
+                load = loading.get(productId);
+                loader = load == null;
+                if (loader) {
+                    load = new Loading();
+                    loading.put(productId, load);
+                }
+            }
+            if (!loader) {
+                load.await();
+                continue;
+            }
+            Entry installed = null;
+            try {
+                StockSnapshot snapshot = pendingWrites.get(productId);
+                if (snapshot == null) {
+                    snapshot = store.load(productId);
+                }
+                if (snapshot == null) {
+                    if (required) {
+                        throw new IllegalStateException("Unknown productId: " + productId);
+                    }
+                    return null;
+                }
+                synchronized (this) {
+                    // A put() while loading installed a newer state; use that instead.
+                    if (!load.superseded) {
+                        ensureOpen();
+                        installed = new Entry(snapshot.toProductStock());
+                        install(productId, installed);
+                        loads.increment();
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    loading.remove(productId);
+                }
+                load.done.countDown();
+            }
+            if (installed != null) {
+                pageOutIfNeeded();
+                return installed;
+            }
+        }
+    }
+
+    // Marks a not yet visible entry dirty, so that even an immediate eviction keeps its state.
+    private Entry newDirtyEntry(ProductStock stock) {
+        Entry entry = new Entry(stock);
+        synchronized (entry) {
+            markDirty(entry);
+        }
+        return entry;
+    }
+
+    // Caller holds "this".
+    private void install(String productId, Entry entry) {
+        Entry previous = entries.get(productId);
+        if (previous != null) {
+            retire(previous, false);
+            entry.slot = previous.slot;
+        } else if (entries.size() >= maxEntries) {
+            entry.slot = evictOne();
+        } else {
+            entry.slot = entries.size();
+        }
+        entries.put(productId, entry);
+        if (clock != null) {
+            clock[entry.slot] = entry;
+        }
+    }
+
+    // Caller holds "this". Returns the freed CLOCK slot.
+    private int evictOne() {
+        Entry victim;
+        if (clock == null) {
+            victim = entries.values().iterator().next();
+        } else {
+            while (true) {
+                Entry candidate = clock[hand];
+                hand = (hand + 1) % maxEntries;
+                synchronized (candidate) {
+                    if (candidate.frequency == 0) {
+                        victim = candidate;
+                        break;
+                    }
+                    candidate.frequency--;
+                }
+            }
+        }
+        entries.remove(victim.stock.getProductId());
+        retire(victim, true);
+        evictions.increment();
+        return victim.slot;
+    }
+
+    // Caller holds "this". Keeps the state of a dirty evicted entry as a pending write.
+    private void retire(Entry entry, boolean keepDirty) {
+        synchronized (entry) {
+            entry.evicted = true;
+            if (entry.dirty && keepDirty) {
+                pendingWrites.put(entry.stock.getProductId(), StockSnapshot.of(entry.stock));
+            }
+            entry.dirty = false;
+        }
+        dirtyEntries.remove(entry);
+    }
+
+    // Caller holds the entry lock.
+    private void markDirty(Entry entry) {
+        if (!entry.dirty) {
+            entry.dirty = true;
+            dirtyEntries.add(entry);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("StockCache is closed");
+        }
+    }
+
+    /**
+     * A store load in progress; other threads missing on the same SKU wait for it.
+     */
+    private static final class Loading {
+        final CountDownLatch done = new CountDownLatch(1);
+        // Guarded by the cache's "this".
+        boolean superseded;
+
+        void await() {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for a store load", e);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final ProductStock stock;
+        // CLOCK ring position, guarded by the cache's "this".
+        int slot;
+        // Guarded by the entry lock.
+        int frequency = 1;
+        boolean dirty;
+        boolean evicted;
+
+        Entry(ProductStock stock) {
+            this.stock = stock;
+        }
+
+        // Caller holds the entry lock.
+        void touch() {
+            if (frequency < MAX_FREQUENCY) {
+                frequency++;
+            }
+        }
+    }
+}
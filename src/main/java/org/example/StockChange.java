@@ -0,0 +1,31 @@
+package org.example;
+
+/**
+ * A change of one SKU's stock levels, as published by {@link StockChangePublisher}.
+ * A conflated change spans several mutations: old values are from before the first,
+ * new values and location from after the last.
+ *
+ * @param productId   the changed product
+ * @param location    storage location after the change
+ * @param oldOnHand   onHand before the change
+ * @param newOnHand   onHand after the change
+ * @param oldReserved reserved before the change
+ * @param newReserved reserved after the change
+ */
+public record StockChange(String productId,
+                          String location,
+                          int oldOnHand,
+                          int newOnHand,
+                          int oldReserved,
+                          int newReserved) {
+
+    /**
+     * Combines this pending change with a later one for the same SKU.
+     */
+    public StockChange mergeWith(StockChange later) {
+        if (!productId.equals(later.productId)) {
+            throw new IllegalArgumentException("Cannot merge changes of different products");
+        }
+        return new StockChange(productId, later.location, oldOnHand, later.newOnHand, oldReserved, later.newReserved);
+    }
+}
@@ -0,0 +1,258 @@
+package org.example;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * {@link Flow.Publisher} of {@link StockChange}s.
+ * <p>
+ * Publishing never blocks on subscribers: each change is merged into the
+ * subscription's pending map and delivery happens on the given executor, only as
+ * far as the subscriber has requested. If a subscriber falls behind, successive
+ * changes to the same SKU are conflated into one (see {@link StockChange#mergeWith}),
+ * so a subscription never buffers more than one change per SKU.
+ */
+public class StockChangePublisher implements Flow.Publisher<StockChange>, AutoCloseable {
+
+    private final Executor executor;
+    private final List<ConflatingSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final LongAdder conflated = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * @param executor runs deliveries to subscribers (must not be null)
+     */
+    public StockChangePublisher(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super StockChange> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber must not be null");
+        }
+        ConflatingSubscription subscription = new ConflatingSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        if (closed) {
+            subscription.complete();
+            return;
+        }
+        subscriptions.add(subscription);
+    }
+
+    /**
+     * Offers a change to every subscriber. Never blocks.
+     * <p>
+     * Changes to one SKU must be published in the order they were applied; callers
+     * that mutate a stock from several threads should use {@link #mutate}.
+     */
+    public void publish(StockChange change) {
+        if (change == null) {
+            throw new IllegalArgumentException("change must not be null");
+        }
+        requireOpen();
+        enqueue(change);
+        scheduleDrains();
+    }
+
+    /**
+     * Applies a mutation to {@code stock} while holding its monitor and publishes
+     * the resulting change, if any. Exceptions from the mutation propagate and
+     * nothing is published. On a closed publisher the mutation is not applied; if the
+     * publisher is closed while the mutation runs, it stays applied and is not published.
+     * <p>
+     * The change is queued before the monitor is released, so changes to one SKU
+     * reach every subscription in the order they were applied. Queueing only takes
+     * each subscription's own short lock; delivery happens after the monitor is released.
+     */
+    public void mutate(ProductStock stock, Consumer<ProductStock> mutation) {
+        requireOpen();
+        synchronized (stock) {
+            int oldOnHand = stock.getOnHand();
+            int oldReserved = stock.getReserved();
+            String oldLocation = stock.getLocation();
+            mutation.accept(stock);
+            if (oldOnHand == stock.getOnHand() && oldReserved == stock.getReserved()
+                    && oldLocation.equals(stock.getLocation())) {
+                return;
+            }
+            enqueue(new StockChange(stock.getProductId(), stock.getLocation(),
+                    oldOnHand, stock.getOnHand(), oldReserved, stock.getReserved()));
+        }
+        scheduleDrains();
+    }
+
+    private void requireOpen() {
+        if (closed) {
+            throw new IllegalStateException("StockChangePublisher is closed");
+        }
+    }
+
+    // Drops the change if the publisher has been closed: subscriptions may already be complete.
+    private void enqueue(StockChange change) {
+        if (closed) {
+            return;
+        }
+        for (ConflatingSubscription subscription : subscriptions) {
+            subscription.offer(change);
+        }
+    }
+
+    private void scheduleDrains() {
+        for (ConflatingSubscription subscription : subscriptions) {
+            subscription.scheduleDrain();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Number of changes folded into an already pending change instead of being queued.
+     */
+    public long getConflatedCount() {
+        return conflated.sum();
+    }
+
+    /**
+     * Completes every subscription once its pending changes have been delivered.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (ConflatingSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    private final class ConflatingSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super StockChange> subscriber;
+        // All fields below guarded by "this".
+        private final LinkedHashMap<String, StockChange> pending = new LinkedHashMap<>();
+        private long requested;
+        private boolean draining;
+        private boolean completing;
+        private boolean done;
+        private Throwable error;
+
+        ConflatingSubscription(Flow.Subscriber<? super StockChange> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(StockChange change) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                StockChange previous = pending.get(change.productId());
+                if (previous == null) {
+                    pending.put(change.productId(), change);
+                } else {
+                    pending.put(change.productId(), previous.mergeWith(change));
+                    conflated.increment();
+                }
+            }
+        }
+
+        void complete() {
+            synchronized (this) {
+                completing = true;
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                if (n <= 0) {
+                    error = new IllegalArgumentException("non-positive subscription request: " + n);
+                    pending.clear();
+                } else {
+                    requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+                }
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                done = true;
+                pending.clear();
+            }
+            subscriptions.remove(this);
+        }
+
+        private void scheduleDrain() {
+            synchronized (this) {
+                if (draining || done) {
+                    return;
+                }
+                boolean work = error != null
+                        || (requested > 0 && !pending.isEmpty())
+                        || (completing && pending.isEmpty());
+                if (!work) {
+                    return;
+                }
+                draining = true;
+            }
+            executor.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                StockChange next = null;
+                Throwable failure = null;
+                boolean finish = false;
+                synchronized (this) {
+                    if (done) {
+                        draining = false;
+                        return;
+                    }
+                    if (error != null) {
+                        failure = error;
+                        done = true;
+                    } else if (requested > 0 && !pending.isEmpty()) {
+                        Iterator<StockChange> it = pending.values().iterator();
+                        next = it.next();
+                        it.remove();
+                        requested--;
+                    } else if (completing && pending.isEmpty()) {
+                        finish = true;
+                        done = true;
+                    } else {
+                        draining = false;
+                        return;
+                    }
+                }
+                if (failure != null) {
+                    subscriptions.remove(this);
+                    subscriber.onError(failure);
+                } else if (finish) {
+                    subscriptions.remove(this);
+                    subscriber.onComplete();
+                } else {
+                    try {
+                        subscriber.onNext(next);
+                    } catch (Throwable t) {
+                        cancel();
+                    }
+                }
+            }
+        }
+    }
+}
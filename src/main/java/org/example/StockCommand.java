@@ -0,0 +1,105 @@
+package org.example;
+
+/**
+ * A single mutation of {@link ProductStock} state, as a value.
+ * Commands can be logged, shipped to other nodes and replayed in order.
+ */
+public sealed interface StockCommand {
+
+    String productId();
+
+    /**
+     * Applies this command.
+     *
+     * @param stock the current stock of {@link #productId()}, or null if it does not exist yet
+     * @return the stock after the command (a new instance for {@link Create})
+     * @throws IllegalStateException if the product does not exist (or already exists for Create),
+     *                               or if ProductStock rejects the mutation
+     */
+    ProductStock applyTo(ProductStock stock);
+
+    private static ProductStock requireExisting(ProductStock stock, String productId) {
+        if (stock == null) {
+            throw new IllegalStateException("Unknown productId: " + productId);
+        }
+        return stock;
+    }
+
+    /**
+     * Registers a new product. Reserved starts at 0, as in the ProductStock constructor.
+     */
+    record Create(String productId, String location, int onHand,
+                  int reorderThreshold, int maxCapacity) implements StockCommand {
+        @Override
+        public ProductStock applyTo(ProductStock stock) {
+            if (stock != null) {
+                throw new IllegalStateException("productId already exists: " + productId);
+            }
+            return new ProductStock(productId, location, onHand, reorderThreshold, maxCapacity);
+        }
+    }
+
+    record AddStock(String productId, int amount) implements StockCommand {
+        @Override
+        public ProductStock applyTo(ProductStock stock) {
+            requireExisting(stock, productId).addStock(amount);
+            return stock;
+        }
+    }
+
+    record RemoveDamaged(String productId, int amount) implements StockCommand {
+        @Override
+        public ProductStock applyTo(ProductStock stock) {
+            requireExisting(stock, productId).removeDamaged(amount);
+            return stock;
+        }
+    }
+
+    record Reserve(String productId, int amount) implements StockCommand {
+        @Override
+        public ProductStock applyTo(ProductStock stock) {
+            requireExisting(stock, productId).reserve(amount);
+            return stock;
+        }
+    }
+
+    record ReleaseReservation(String productId, int amount) implements StockCommand {
+        @Override
+        public ProductStock applyTo(ProductStock stock) {
+            requireExisting(stock, productId).releaseReservation(amount);
+            return stock;
+        }
+    }
+
+    record ShipReserved(String productId, int amount) implements StockCommand {
+        @Override
+        public ProductStock applyTo(ProductStock stock) {
+            requireExisting(stock, productId).shipReserved(amount);
+            return stock;
+        }
+    }
+
+    record ChangeLocation(String productId, String newLocation) implements StockCommand {
+        @Override
+        public ProductStock applyTo(ProductStock stock) {
+            requireExisting(stock, productId).changeLocation(newLocation);
+            return stock;
+        }
+    }
+
+    record UpdateReorderThreshold(String productId, int newThreshold) implements StockCommand {
+        @Override
+        public ProductStock applyTo(ProductStock stock) {
+            requireExisting(stock, productId).updateReorderThreshold(newThreshold);
+            return stock;
+        }
+    }
+
+    record UpdateMaxCapacity(String productId, int newMaxCapacity) implements StockCommand {
+        @Override
+        public ProductStock applyTo(ProductStock stock) {
+            requireExisting(stock, productId).updateMaxCapacity(newMaxCapacity);
+            return stock;
+        }
+    }
+}
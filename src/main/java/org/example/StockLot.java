@@ -0,0 +1,13 @@
+package org.example;
+
+import java.time.LocalDate;
+
+/**
+ * Quantity of one lot of a product, as reported by {@link LotTrackedStock}.
+ *
+ * @param lotId    lot identifier, unique per product
+ * @param expiry   last day on which the lot may be shipped
+ * @param quantity units of this lot (on hand, or consumed/removed when returned by an operation)
+ */
+public record StockLot(String lotId, LocalDate expiry, int quantity) {
+}
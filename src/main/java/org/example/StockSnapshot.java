@@ -0,0 +1,54 @@
+package org.example;
+
+/**
+ * Immutable copy of the state of a {@link ProductStock}.
+ * Used wherever stock state leaves the live object (stores, caches, replicas).
+ *
+ * @param productId        unique ID of the product
+ * @param location         storage location code
+ * @param onHand           physical units stored
+ * @param reserved         units reserved for orders (<= onHand)
+ * @param reorderThreshold threshold for triggering reorder
+ * @param maxCapacity      maximum capacity of the location
+ */
+public record StockSnapshot(String productId,
+                            String location,
+                            int onHand,
+                            int reserved,
+                            int reorderThreshold,
+                            int maxCapacity) {
+
+    public StockSnapshot {
+        if (reserved < 0) {
+            throw new IllegalArgumentException("reserved must be >= 0");
+        }
+        if (reserved > onHand) {
+            throw new IllegalArgumentException("reserved must not exceed onHand");
+        }
+    }
+
+    /**
+     * Captures the current state of the given stock.
+     * The caller is responsible for holding whatever lock guards {@code stock}.
+     */
+    public static StockSnapshot of(ProductStock stock) {
+        return new StockSnapshot(stock.getProductId(),
+                                 stock.getLocation(),
+                                 stock.getOnHand(),
+                                 stock.getReserved(),
+                                 stock.getReorderThreshold(),
+                                 stock.getMaxCapacity());
+    }
+
+    /**
+     * Rebuilds a live ProductStock with the same state.
+     * The usual constructor validation applies.
+     */
+    public ProductStock toProductStock() {
+        ProductStock stock = new ProductStock(productId, location, onHand, reorderThreshold, maxCapacity);
+        if (reserved > 0) {
+            stock.reserve(reserved);
+        }
+        return stock;
+    }
+}
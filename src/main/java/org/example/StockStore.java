@@ -0,0 +1,22 @@
+package org.example;
+
+import java.util.Collection;
+
+/**
+ * Backing store for stock state (database, file, ...).
+ * Implementations must be safe for use from multiple threads.
+ */
+public interface StockStore {
+
+    /**
+     * Loads the stored state of a product.
+     *
+     * @return the stored snapshot, or null if the product is unknown
+     */
+    StockSnapshot load(String productId);
+
+    /**
+     * Writes the given snapshots, replacing any stored state for the same productId.
+     */
+    void storeAll(Collection<StockSnapshot> snapshots);
+}
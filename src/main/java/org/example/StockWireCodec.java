@@ -0,0 +1,353 @@
+package org.example;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary codec for stock state and {@link StockCommand}s.
+ * <p>
+ * Message layout: {@code type (u8) | version (u8) | payloadLength (varint) | payload}.
+ * Ints are zig-zag varints, strings are a varint byte length followed by UTF-8.
+ * Fields are only ever appended to a type's payload in later versions, so a decoder
+ * reads the fields it knows and skips the rest using payloadLength, and a newer
+ * decoder knows from the version which fields an older message carries.
+ * <p>
+ * Encoding writes straight from the source object into the buffer; decoding reads
+ * strings through a reusable scratch array, so the only allocations are the
+ * decoded objects themselves. Instances are therefore not thread-safe; use one per
+ * thread.
+ */
+public final class StockWireCodec {
+
+    public static final byte VERSION = 1;
+
+    public static final byte TYPE_STOCK = 1;
+    public static final byte TYPE_CREATE = 2;
+    public static final byte TYPE_ADD_STOCK = 3;
+    public static final byte TYPE_REMOVE_DAMAGED = 4;
+    public static final byte TYPE_RESERVE = 5;
+    public static final byte TYPE_RELEASE = 6;
+    public static final byte TYPE_SHIP = 7;
+    public static final byte TYPE_CHANGE_LOCATION = 8;
+    public static final byte TYPE_UPDATE_REORDER_THRESHOLD = 9;
+    public static final byte TYPE_UPDATE_MAX_CAPACITY = 10;
+
+    private char[] scratch = new char[64];
+
+    // ---------- Stock state ----------
+
+    /**
+     * Encodes the current state of a live stock. The caller must hold whatever lock guards it.
+     *
+     * @throws BufferOverflowException if {@code out} has too little room; its position is unchanged
+     */
+    public void encode(ProductStock stock, ByteBuffer out) {
+        encodeStock(stock.getProductId(), stock.getLocation(), stock.getOnHand(), stock.getReserved(),
+                stock.getReorderThreshold(), stock.getMaxCapacity(), out);
+    }
+
+    public void encode(StockSnapshot snapshot, ByteBuffer out) {
+        encodeStock(snapshot.productId(), snapshot.location(), snapshot.onHand(), snapshot.reserved(),
+                snapshot.reorderThreshold(), snapshot.maxCapacity(), out);
+    }
+
+    /**
+     * Decodes a stock record written by {@link #encode(StockSnapshot, ByteBuffer)}.
+     *
+     * @throws IllegalArgumentException if the next message is not a valid stock record
+     */
+    public StockSnapshot decodeSnapshot(ByteBuffer in) {
+        int start = in.position();
+        try {
+            byte type = in.get();
+            if (type != TYPE_STOCK) {
+                throw new IllegalArgumentException("Not a stock record: type " + type);
+            }
+            int end = readHeader(in);
+            StockSnapshot snapshot = new StockSnapshot(readString(in), readString(in), readInt(in),
+                    readInt(in), readInt(in), readInt(in));
+            skipTo(in, end);
+            return snapshot;
+        } catch (RuntimeException e) {
+            in.position(start);
+            throw malformed(e);
+        }
+    }
+
+    // ---------- Commands ----------
+
+    /**
+     * Encodes a command.
+     *
+     * @throws BufferOverflowException if {@code out} has too little room; its position is unchanged
+     */
+    public void encode(StockCommand command, ByteBuffer out) {
+        if (command instanceof StockCommand.Create c) {
+            int payload = sizeOf(c.productId()) + sizeOf(c.location()) + sizeOf(c.onHand())
+                    + sizeOf(c.reorderThreshold()) + sizeOf(c.maxCapacity());
+            writeHeader(out, TYPE_CREATE, payload);
+            writeString(out, c.productId());
+            writeString(out, c.location());
+            writeInt(out, c.onHand());
+            writeInt(out, c.reorderThreshold());
+            writeInt(out, c.maxCapacity());
+        } else if (command instanceof StockCommand.AddStock c) {
+            encodeAmount(out, TYPE_ADD_STOCK, c.productId(), c.amount());
+        } else if (command instanceof StockCommand.RemoveDamaged c) {
+            encodeAmount(out, TYPE_REMOVE_DAMAGED, c.productId(), c.amount());
+        } else if (command instanceof StockCommand.Reserve c) {
+            encodeAmount(out, TYPE_RESERVE, c.productId(), c.amount());
+        } else if (command instanceof StockCommand.ReleaseReservation c) {
+            encodeAmount(out, TYPE_RELEASE, c.productId(), c.amount());
+        } else if (command instanceof StockCommand.ShipReserved c) {
+            encodeAmount(out, TYPE_SHIP, c.productId(), c.amount());
+        } else if (command instanceof StockCommand.ChangeLocation c) {
+            writeHeader(out, TYPE_CHANGE_LOCATION, sizeOf(c.productId()) + sizeOf(c.newLocation()));
+            writeString(out, c.productId());
+            writeString(out, c.newLocation());
+        } else if (command instanceof StockCommand.UpdateReorderThreshold c) {
+            encodeAmount(out, TYPE_UPDATE_REORDER_THRESHOLD, c.productId(), c.newThreshold());
+        } else if (command instanceof StockCommand.UpdateMaxCapacity c) {
+            encodeAmount(out, TYPE_UPDATE_MAX_CAPACITY, c.productId(), c.newMaxCapacity());
+        } else {
+            throw new IllegalArgumentException("Unsupported command: " + command);
+        }
+    }
+
+    /**
+     * Decodes a command written by {@link #encode(StockCommand, ByteBuffer)}.
+     *
+     * @throws IllegalArgumentException if the next message is not a valid command
+     */
+    public StockCommand decodeCommand(ByteBuffer in) {
+        int start = in.position();
+        try {
+            byte type = in.get();
+            int end = readHeader(in);
+            StockCommand command;
+            switch (type) {
+                case TYPE_CREATE:
+                    command = new StockCommand.Create(readString(in), readString(in), readInt(in),
+                            readInt(in), readInt(in));
+                    break;
+                case TYPE_ADD_STOCK:
+                    command = new StockCommand.AddStock(readString(in), readInt(in));
+                    break;
+                case TYPE_REMOVE_DAMAGED:
+                    command = new StockCommand.RemoveDamaged(readString(in), readInt(in));
+                    break;
+                case TYPE_RESERVE:
+                    command = new StockCommand.Reserve(readString(in), readInt(in));
+                    break;
+                case TYPE_RELEASE:
+                    command = new StockCommand.ReleaseReservation(readString(in), readInt(in));
+                    break;
+                case TYPE_SHIP:
+                    command = new StockCommand.ShipReserved(readString(in), readInt(in));
+                    break;
+                case TYPE_CHANGE_LOCATION:
+                    command = new StockCommand.ChangeLocation(readString(in), readString(in));
+                    break;
+                case TYPE_UPDATE_REORDER_THRESHOLD:
+                    command = new StockCommand.UpdateReorderThreshold(readString(in), readInt(in));
+                    break;
+                case TYPE_UPDATE_MAX_CAPACITY:
+                    command = new StockCommand.UpdateMaxCapacity(readString(in), readInt(in));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown command type: " + type);
+            }
+            skipTo(in, end);
+            return command;
+        } catch (RuntimeException e) {
+            in.position(start);
+            throw malformed(e);
+        }
+    }
+
+    /**
+     * Returns the type byte of the next message without consuming it.
+     */
+    public static byte peekType(ByteBuffer in) {
+        return in.get(in.position());
+    }
+
+    // ---------- Encoding helpers ----------
+
+    private void encodeStock(String productId, String location, int onHand, int reserved,
+                             int reorderThreshold, int maxCapacity, ByteBuffer out) {
+        int payload = sizeOf(productId) + sizeOf(location) + sizeOf(onHand) + sizeOf(reserved)
+                + sizeOf(reorderThreshold) + sizeOf(maxCapacity);
+        writeHeader(out, TYPE_STOCK, payload);
+        writeString(out, productId);
+        writeString(out, location);
+        writeInt(out, onHand);
+        writeInt(out, reserved);
+        writeInt(out, reorderThreshold);
+        writeInt(out, maxCapacity);
+    }
+
+    private static void encodeAmount(ByteBuffer out, byte type, String productId, int amount) {
+        writeHeader(out, type, sizeOf(productId) + sizeOf(amount));
+        writeString(out, productId);
+        writeInt(out, amount);
+    }
+
+    // Checks room for the whole message up front so a failed encode leaves out untouched.
+    private static void writeHeader(ByteBuffer out, byte type, int payloadLength) {
+        int total = 2 + varintSize(payloadLength) + payloadLength;
+        if (out.remaining() < total) {
+            throw new BufferOverflowException();
+        }
+        out.put(type);
+        out.put(VERSION);
+        writeVarint(out, payloadLength);
+    }
+
+    private static void writeInt(ByteBuffer out, int value) {
+        writeVarint(out, (value << 1) ^ (value >> 31));
+    }
+
+    private static void writeVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static void writeString(ByteBuffer out, String s) {
+        writeVarint(out, utf8Length(s));
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                out.put((byte) (0xF0 | (cp >> 18)));
+                out.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (cp & 0x3F)));
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static int sizeOf(int value) {
+        return varintSize((value << 1) ^ (value >> 31));
+    }
+
+    private static int sizeOf(String s) {
+        int bytes = utf8Length(s);
+        return varintSize(bytes) + bytes;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    private static int utf8Length(String s) {
+        int bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    // ---------- Decoding helpers ----------
+
+    // Reads version and payload length; returns the position just after the payload.
+    private static int readHeader(ByteBuffer in) {
+        byte version = in.get();
+        if (version < 1) {
+            throw new IllegalArgumentException("Unsupported version: " + version);
+        }
+        int length = readVarint(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Truncated message");
+        }
+        return in.position() + length;
+    }
+
+    private static void skipTo(ByteBuffer in, int end) {
+        if (in.position() > end) {
+            throw new IllegalArgumentException("Fields overrun payload length");
+        }
+        in.position(end);
+    }
+
+    private static int readInt(ByteBuffer in) {
+        int raw = readVarint(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    private String readString(ByteBuffer in) {
+        int length = readVarint(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Truncated string");
+        }
+        if (scratch.length < length) {
+            scratch = new char[Math.max(length, scratch.length * 2)];
+        }
+        int end = in.position() + length;
+        int n = 0;
+        while (in.position() < end) {
+            int b = in.get() & 0xFF;
+            if (b < 0x80) {
+                scratch[n++] = (char) b;
+            } else if (b < 0xE0) {
+                scratch[n++] = (char) (((b & 0x1F) << 6) | (in.get() & 0x3F));
+            } else if (b < 0xF0) {
+                scratch[n++] = (char) (((b & 0x0F) << 12) | ((in.get() & 0x3F) << 6) | (in.get() & 0x3F));
+            } else {
+                int cp = ((b & 0x07) << 18) | ((in.get() & 0x3F) << 12)
+                        | ((in.get() & 0x3F) << 6) | (in.get() & 0x3F);
+                scratch[n++] = Character.highSurrogate(cp);
+                scratch[n++] = Character.lowSurrogate(cp);
+            }
+        }
+        return new String(scratch, 0, n);
+    }
+
+    private static IllegalArgumentException malformed(RuntimeException cause) {
+        if (cause instanceof IllegalArgumentException e) {
+            return e;
+        }
+        return new IllegalArgumentException("Malformed message", cause);
+    }
+}
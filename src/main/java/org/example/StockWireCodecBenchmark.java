@@ -0,0 +1,87 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Throughput benchmark for {@link StockWireCodec}: encodes and decodes every message
+ * type (stock state and each command) in a tight loop and prints round-trips per second.
+ * Run {@link #main}; the first argument overrides the iteration count.
+ */
+public final class StockWireCodecBenchmark {
+
+    private static final StockSnapshot SNAPSHOT = new StockSnapshot("SKU-000123", "WH-1-A3", 180, 25, 20, 200);
+
+    static final List<StockCommand> COMMANDS = List.of(
+            new StockCommand.Create("SKU-000123", "WH-1-A3", 180, 20, 200),
+            new StockCommand.AddStock("SKU-000123", 12),
+            new StockCommand.RemoveDamaged("SKU-000123", 3),
+            new StockCommand.Reserve("SKU-000123", 2),
+            new StockCommand.ReleaseReservation("SKU-000123", 1),
+            new StockCommand.ShipReserved("SKU-000123", 1),
+            new StockCommand.ChangeLocation("SKU-000123", "WH-2-B7"),
+            new StockCommand.UpdateReorderThreshold("SKU-000123", 30),
+            new StockCommand.UpdateMaxCapacity("SKU-000123", 400));
+
+    private StockWireCodecBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        StockWireCodec codec = new StockWireCodec();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+
+        // Warm up all paths before measuring.
+        run(codec, buffer, iterations / 10);
+
+        System.out.printf("%-24s %6s %14s%n", "message", "bytes", "round-trips/s");
+        buffer.clear();
+        codec.encode(SNAPSHOT, buffer);
+        int bytes = buffer.position();
+        long start = System.nanoTime();
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            buffer.clear();
+            codec.encode(SNAPSHOT, buffer);
+            buffer.flip();
+            sink += codec.decodeSnapshot(buffer).onHand();
+        }
+        report("Stock", bytes, iterations, System.nanoTime() - start);
+
+        for (StockCommand command : COMMANDS) {
+            buffer.clear();
+            codec.encode(command, buffer);
+            bytes = buffer.position();
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                buffer.clear();
+                codec.encode(command, buffer);
+                buffer.flip();
+                sink += codec.decodeCommand(buffer).productId().length();
+            }
+            report(command.getClass().getSimpleName(), bytes, iterations, System.nanoTime() - start);
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static void run(StockWireCodec codec, ByteBuffer buffer, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            buffer.clear();
+            codec.encode(SNAPSHOT, buffer);
+            buffer.flip();
+            codec.decodeSnapshot(buffer);
+            for (StockCommand command : COMMANDS) {
+                buffer.clear();
+                codec.encode(command, buffer);
+                buffer.flip();
+                codec.decodeCommand(buffer);
+            }
+        }
+    }
+
+    private static void report(String name, int bytes, int iterations, long nanos) {
+        System.out.printf("%-24s %6d %14.0f%n", name, bytes, iterations / (nanos / 1e9));
+    }
+}
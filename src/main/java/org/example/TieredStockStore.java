@@ -0,0 +1,108 @@
+package org.example;
+
+import java.time.Duration;
+
+/**
+ * Two-tier stock store: recently used SKUs live on the heap as {@link ProductStock}s,
+ * everything else lives in a cold {@link StockStore} (typically a {@link FileStockStore}).
+ * <p>
+ * The hot tier is a {@link StockCache} with {@link StockCache.Eviction#CLOCK} eviction:
+ * any access to a cold SKU faults it back in transparently, frequently used SKUs
+ * survive scans of one-off accesses, and only entries mutated since they were faulted
+ * in are written back. Page-outs are queued and written in batches by the cache's
+ * flusher, so a fault never waits for a cold-tier write.
+ * <p>
+ * Heap use is {@code maxHotEntries} ProductStocks plus the cold store's index; for a
+ * {@link FileStockStore} that is two longs per slot, no objects per SKU.
+ */
+public class TieredStockStore implements LoadTarget, AutoCloseable {
+
+    private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+
+    private final StockCache hot;
+
+    /**
+     * @param cold          cold tier (must not be null)
+     * @param maxHotEntries maximum number of SKUs kept on the heap (> 0)
+     */
+    public TieredStockStore(StockStore cold, int maxHotEntries) {
+        this(cold, maxHotEntries, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * @param flushInterval how often modified hot SKUs and page-outs are written (> 0)
+     */
+    public TieredStockStore(StockStore cold, int maxHotEntries, Duration flushInterval) {
+        if (cold == null) {
+            throw new IllegalArgumentException("cold must not be null");
+        }
+        if (maxHotEntries <= 0) {
+            throw new IllegalArgumentException("maxHotEntries must be > 0");
+        }
+        this.hot = StockCache.open(cold, maxHotEntries, flushInterval, StockCache.Eviction.CLOCK);
+    }
+
+    @Override
+    public void apply(StockCommand command) {
+        if (command == null) {
+            throw new IllegalArgumentException("command must not be null");
+        }
+        if (command instanceof StockCommand.Create) {
+            hot.create(command.applyTo(null));
+            return;
+        }
+        hot.update(command.productId(), command::applyTo);
+    }
+
+    @Override
+    public StockSnapshot snapshot(String productId) {
+        return hot.read(productId, StockSnapshot::of);
+    }
+
+    /**
+     * The hot tier, for direct reads and mutations.
+     */
+    public StockCache hotTier() {
+        return hot;
+    }
+
+    /**
+     * Number of SKUs currently on the heap.
+     */
+    public int hotCount() {
+        return hot.size();
+    }
+
+    public boolean isHot(String productId) {
+        return hot.contains(productId);
+    }
+
+    /**
+     * Number of times a cold SKU was loaded back into the hot tier.
+     */
+    public long getFaultCount() {
+        return hot.getLoadCount();
+    }
+
+    /**
+     * Number of SKUs paged out of the hot tier.
+     */
+    public long getEvictionCount() {
+        return hot.getEvictionCount();
+    }
+
+    /**
+     * Writes every modified hot SKU and pending page-out to the cold tier.
+     */
+    public void flush() {
+        hot.flush();
+    }
+
+    /**
+     * Flushes the hot tier. The cold store is not closed; it belongs to the caller.
+     */
+    @Override
+    public void close() {
+        hot.close();
+    }
+}
@@ -0,0 +1,118 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic, order-shaped stream of {@link StockCommand}s for one client thread.
+ * <p>
+ * SKUs are drawn from a Zipf distribution. Ships and releases always refer to a
+ * reservation this stream made earlier (if there is none, a reserve is emitted
+ * instead), so the stream looks like orders moving through their lifecycle rather
+ * than random calls. The same spec and stream index always yield the same stream,
+ * provided {@link #rejected} is reported the same way.
+ */
+public class WorkloadGenerator {
+
+    private final WorkloadSpec spec;
+    private final SplittableRandom random;
+    private final double[] cdf;
+    private final String[] skuIds;
+    private final int totalWeight;
+    // Reservations made by this stream that are not yet shipped or released.
+    private final List<StockCommand.Reserve> outstanding = new ArrayList<>();
+
+    public WorkloadGenerator(WorkloadSpec spec, int streamIndex) {
+        if (spec == null) {
+            throw new IllegalArgumentException("spec must not be null");
+        }
+        this.spec = spec;
+        this.random = new SplittableRandom(spec.seed() + streamIndex);
+        this.cdf = zipfCdf(spec.skuCount(), spec.zipfExponent());
+        this.skuIds = new String[spec.skuCount()];
+        for (int i = 0; i < skuIds.length; i++) {
+            skuIds[i] = WorkloadSpec.skuId(i);
+        }
+        this.totalWeight = spec.reserveWeight() + spec.shipWeight() + spec.releaseWeight()
+                + spec.receiptWeight() + spec.damageWeight();
+    }
+
+    public StockCommand next() {
+        int roll = random.nextInt(totalWeight);
+        if ((roll -= spec.reserveWeight()) < 0) {
+            return reserve();
+        }
+        if ((roll -= spec.shipWeight()) < 0) {
+            StockCommand.Reserve order = takeOutstanding();
+            return order == null ? reserve() : new StockCommand.ShipReserved(order.productId(), order.amount());
+        }
+        if ((roll -= spec.releaseWeight()) < 0) {
+            StockCommand.Reserve order = takeOutstanding();
+            return order == null ? reserve() : new StockCommand.ReleaseReservation(order.productId(), order.amount());
+        }
+        if ((roll -= spec.receiptWeight()) < 0) {
+            return new StockCommand.AddStock(nextSku(), quantity());
+        }
+        return new StockCommand.RemoveDamaged(nextSku(), quantity());
+    }
+
+    /**
+     * Tells the generator that the last command it returned was rejected,
+     * so that a rejected reserve is not later shipped or released.
+     */
+    public void rejected(StockCommand command) {
+        if (command instanceof StockCommand.Reserve && !outstanding.isEmpty()
+                && outstanding.get(outstanding.size() - 1) == command) {
+            outstanding.remove(outstanding.size() - 1);
+        }
+    }
+
+    /**
+     * Index of the next SKU according to the Zipf popularity skew.
+     */
+    int nextSkuIndex() {
+        int idx = Arrays.binarySearch(cdf, random.nextDouble());
+        idx = idx < 0 ? -idx - 1 : idx;
+        return Math.min(idx, cdf.length - 1);
+    }
+
+    private String nextSku() {
+        return skuIds[nextSkuIndex()];
+    }
+
+    private StockCommand.Reserve reserve() {
+        StockCommand.Reserve reserve = new StockCommand.Reserve(nextSku(), quantity());
+        outstanding.add(reserve);
+        return reserve;
+    }
+
+    private StockCommand.Reserve takeOutstanding() {
+        if (outstanding.isEmpty()) {
+            return null;
+        }
+        int i = random.nextInt(outstanding.size());
+        StockCommand.Reserve order = outstanding.get(i);
+        outstanding.set(i, outstanding.get(outstanding.size() - 1));
+        outstanding.remove(outstanding.size() - 1);
+        return order;
+    }
+
+    private int quantity() {
+        return 1 + random.nextInt(spec.maxQuantity());
+    }
+
+    private static double[] zipfCdf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+}
@@ -0,0 +1,65 @@
+package org.example;
+
+/**
+ * Shape of a generated stock workload for {@link LoadHarness}.
+ *
+ * @param skuCount        number of SKUs, named "SKU-0" .. "SKU-(n-1)" (> 0)
+ * @param zipfExponent    popularity skew; 0 is uniform, ~1 is typical retail (>= 0)
+ * @param reserveWeight   relative frequency of reserve operations (>= 0)
+ * @param shipWeight      relative frequency of shipping a previous reservation (>= 0)
+ * @param releaseWeight   relative frequency of releasing a previous reservation (>= 0)
+ * @param receiptWeight   relative frequency of stock receipts, i.e. addStock (>= 0)
+ * @param damageWeight    relative frequency of removeDamaged (>= 0)
+ * @param maxQuantity     quantities are drawn uniformly from 1..maxQuantity (> 0)
+ * @param initialOnHand   on-hand quantity each SKU starts with (>= 0)
+ * @param maxCapacity     max capacity of each SKU (>= initialOnHand, > 0)
+ * @param seed            base seed; stream i uses seed + i
+ */
+public record WorkloadSpec(int skuCount,
+                           double zipfExponent,
+                           int reserveWeight,
+                           int shipWeight,
+                           int releaseWeight,
+                           int receiptWeight,
+                           int damageWeight,
+                           int maxQuantity,
+                           int initialOnHand,
+                           int maxCapacity,
+                           long seed) {
+
+    public WorkloadSpec {
+        if (skuCount <= 0) {
+            throw new IllegalArgumentException("skuCount must be > 0");
+        }
+        if (zipfExponent < 0 || Double.isNaN(zipfExponent)) {
+            throw new IllegalArgumentException("zipfExponent must be >= 0");
+        }
+        if (reserveWeight < 0 || shipWeight < 0 || releaseWeight < 0 || receiptWeight < 0 || damageWeight < 0) {
+            throw new IllegalArgumentException("operation weights must be >= 0");
+        }
+        if (reserveWeight + shipWeight + releaseWeight + receiptWeight + damageWeight <= 0) {
+            throw new IllegalArgumentException("at least one operation weight must be > 0");
+        }
+        if (maxQuantity <= 0) {
+            throw new IllegalArgumentException("maxQuantity must be > 0");
+        }
+        if (initialOnHand < 0) {
+            throw new IllegalArgumentException("initialOnHand must be >= 0");
+        }
+        if (maxCapacity <= 0 || initialOnHand > maxCapacity) {
+            throw new IllegalArgumentException("maxCapacity must be > 0 and >= initialOnHand");
+        }
+    }
+
+    /**
+     * Order-shaped default mix: mostly reserves followed by ships, some cancellations,
+     * occasional receipts and damage, with a Zipf(0.99) popularity skew.
+     */
+    public static WorkloadSpec orderMix(int skuCount, long seed) {
+        return new WorkloadSpec(skuCount, 0.99, 50, 30, 10, 8, 2, 3, 500, 1_000, seed);
+    }
+
+    public static String skuId(int index) {
+        return "SKU-" + index;
+    }
+}
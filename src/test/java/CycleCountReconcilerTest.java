@@ -0,0 +1,242 @@
+import org.example.CycleCount;
+import org.example.CycleCountReconciler;
+import org.example.CycleCountReport;
+import org.example.InMemoryStockService;
+import org.example.MovementTrackingStockService;
+import org.example.StockCommand;
+import org.junit.jupiter.api.*;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Cycle Count Reconciliation Tests")
+@Tag("AllTests")
+public class CycleCountReconcilerTest {
+
+    private static final Instant T0 = Instant.parse("2026-03-01T08:00:00Z");
+
+    private ManualClock clock;
+    private InMemoryStockService store;
+    private MovementTrackingStockService stock;
+    private List<List<StockCommand>> batches;
+
+    @BeforeEach
+    void setUp() {
+        clock = new ManualClock(T0);
+        store = new InMemoryStockService();
+        stock = new MovementTrackingStockService(store, clock, Duration.ofHours(8));
+        stock.apply(new StockCommand.Create("P1", "A-01", 100, 10, 200));
+        stock.apply(new StockCommand.Create("P2", "A-02", 50, 5, 60));
+        batches = new ArrayList<>();
+    }
+
+    private CycleCount count(String location, String productId, int counted, long secondsAfterT0) {
+        return new CycleCount(location, productId, counted, T0.plusSeconds(secondsAfterT0));
+    }
+
+    private CycleCountReport reconcile(int batchSize, CycleCount... counts) {
+        return new CycleCountReconciler(stock, batchSize, batches::add).reconcile(List.of(counts).iterator());
+    }
+
+    @Nested
+    @DisplayName("Point-in-time comparison")
+    @Tag("Reconciliation")
+    class AsOfTests {
+
+        @Test
+        @DisplayName("Movements after the count are not mistaken for shrinkage")
+        @Tag("Normal")
+        void movementsDuringCount() {
+            clock.advance(60);
+            stock.apply(new StockCommand.Reserve("P1", 10));
+            clock.advance(60);
+            stock.apply(new StockCommand.ShipReserved("P1", 10));
+            stock.apply(new StockCommand.AddStock("P1", 30));
+
+            CycleCountReport report = reconcile(10, count("A-01", "P1", 95, 60));
+
+            assertEquals(115, store.snapshot("P1").onHand());
+            assertEquals(List.of(List.of(new StockCommand.RemoveDamaged("P1", 5))), batches);
+            assertEquals(1, report.adjusted());
+            assertEquals(5, report.unitsRemoved());
+        }
+
+        @Test
+        @DisplayName("A count agreeing with past stock is matched")
+        @Tag("Normal")
+        void matched() {
+            clock.advance(120);
+            stock.apply(new StockCommand.RemoveDamaged("P2", 20));
+            CycleCountReport report = reconcile(10, count("A-02", "P2", 50, 60), count("A-01", "P1", 100, 130));
+            assertEquals(2, report.matched());
+            assertTrue(batches.isEmpty());
+            assertEquals(30, store.snapshot("P2").onHand());
+        }
+
+        @Test
+        @DisplayName("Unknown, misplaced and stale rows are skipped")
+        @Tag("Error")
+        void skippedRows() {
+            clock.advance(Duration.ofHours(9).toSeconds());
+            CycleCountReport report = reconcile(10,
+                    count("A-01", "NOPE", 1, 32_500),
+                    count("B-99", "P1", 1, 32_500),
+                    count("A-01", "P1", 1, 0));
+            assertEquals(new CycleCountReport(3, 0, 0, 0, 0, 1, 1, 1, 0, 0), report);
+            assertEquals(100, store.snapshot("P1").onHand());
+        }
+
+        @Test
+        @DisplayName("Adjustments ProductStock rejects are counted, not thrown")
+        @Tag("Error")
+        void rejectedAdjustment() {
+            clock.advance(60);
+            stock.apply(new StockCommand.AddStock("P2", 10));
+            CycleCountReport report = reconcile(10, count("A-02", "P2", 55, 30));
+            assertEquals(1, report.rejected());
+            assertEquals(60, store.snapshot("P2").onHand());
+
+            CycleCountReport older = reconcile(10, count("A-02", "P2", 40, 20));
+            assertEquals(1, older.superseded());
+            assertEquals(60, store.snapshot("P2").onHand());
+        }
+    }
+
+    @Nested
+    @DisplayName("Batching and recounts")
+    @Tag("Reconciliation")
+    class BatchTests {
+
+        @Test
+        @DisplayName("The latest count of a product wins, within and across batches")
+        @Tag("Normal")
+        void latestCountWins() {
+            clock.advance(600);
+            CycleCountReport report = reconcile(1,
+                    count("A-01", "P1", 90, 100),
+                    count("A-01", "P1", 80, 50),
+                    count("A-01", "P1", 92, 200));
+            assertEquals(92, store.snapshot("P1").onHand());
+            assertEquals(1, report.superseded());
+            assertEquals(2, report.adjusted());
+
+            CycleCountReport inBatch = reconcile(10,
+                    count("A-01", "P1", 70, 300),
+                    count("A-01", "P1", 91, 400),
+                    count("A-01", "P1", 60, 350));
+            assertEquals(91, store.snapshot("P1").onHand());
+            assertEquals(2, inBatch.superseded());
+        }
+
+        @Test
+        @DisplayName("A matching count is not overwritten by an older count")
+        @Tag("Boundary")
+        void matchedThenOlderCount() {
+            clock.advance(600);
+            CycleCountReport report = reconcile(1,
+                    count("A-01", "P1", 100, 200),
+                    count("A-01", "P1", 90, 100));
+            assertEquals(100, store.snapshot("P1").onHand());
+            assertEquals(1, report.matched());
+            assertEquals(1, report.superseded());
+            assertEquals(0, report.adjusted());
+            assertEquals(List.of(), batches);
+        }
+
+        @Test
+        @DisplayName("Count files are streamed in batches")
+        @Tag("Normal")
+        void streamedFile() throws Exception {
+            for (int i = 3; i <= 7; i++) {
+                stock.apply(new StockCommand.Create("P" + i, "A-0" + i, 10, 0, 100));
+            }
+            clock.advance(3_600);
+            StringBuilder file = new StringBuilder("location,productId,counted,countedAt\n");
+            for (int i = 3; i <= 7; i++) {
+                file.append("A-0").append(i).append(",P").append(i).append(',').append(10 + i)
+                        .append(',').append(T0.plusSeconds(i)).append('\n');
+            }
+            file.append('\n');
+            CycleCountReport report = new CycleCountReconciler(stock, 2, batches::add)
+                    .reconcile(new BufferedReader(new StringReader(file.toString())));
+            assertEquals(5, report.rows());
+            assertEquals(25, report.unitsAdded());
+            assertEquals(List.of(2, 2, 1), batches.stream().map(List::size).toList());
+            assertEquals(17, store.snapshot("P7").onHand());
+        }
+
+        @Test
+        @DisplayName("Malformed lines are reported with their content")
+        @Tag("Error")
+        void malformedLine() {
+            assertThrows(IllegalArgumentException.class, () -> CycleCount.parse("A-01,P1,many,2026-03-01T08:00:00Z"));
+            assertThrows(IllegalArgumentException.class, () -> CycleCount.parse("A-01,P1,5"));
+            assertThrows(IllegalArgumentException.class, () -> CycleCount.parse("A-01,P1,-1,2026-03-01T08:00:00Z"));
+        }
+
+        @Test
+        @DisplayName("Movement logs are dropped after the retention period")
+        @Tag("Boundary")
+        void boundedLogs() {
+            assertEquals(2, stock.trackedCount());
+            clock.advance(Duration.ofHours(8).toSeconds() + 1);
+            stock.trim();
+            assertEquals(0, stock.trackedCount());
+        }
+
+        @Test
+        @DisplayName("Idle logs are swept by later mutations without an explicit trim")
+        @Tag("Boundary")
+        void lazySweep() {
+            clock.advance(Duration.ofHours(8).toSeconds() + 1);
+            stock.apply(new StockCommand.AddStock("P1", 5));
+            assertEquals(1, stock.trackedCount());
+            assertEquals(new MovementTrackingStockService.AsOf("A-01", 100, false),
+                    stock.onHandAsOf("P1", clock.millis() - 1));
+        }
+
+        @Test
+        @DisplayName("Rejected mutations leave no log behind")
+        @Tag("Error")
+        void rejectedLeavesNoLog() {
+            assertThrows(IllegalStateException.class, () -> stock.apply(new StockCommand.AddStock("P3", 5)));
+            assertEquals(2, stock.trackedCount());
+        }
+    }
+
+    private static final class ManualClock extends Clock {
+        private Instant now;
+
+        ManualClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(long seconds) {
+            now = now.plusSeconds(seconds);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
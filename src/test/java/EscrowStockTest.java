@@ -0,0 +1,146 @@
+import org.example.EscrowStock;
+import org.example.ProductStock;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("EscrowStock Tests")
+@Tag("AllTests")
+public class EscrowStockTest {
+
+    @Nested
+    @DisplayName("Reserve")
+    @Tag("Reserve")
+    class ReserveTests {
+
+        @Test
+        @DisplayName("Escrow counts as available, not reserved")
+        @Tag("Normal")
+        void escrowIsInvisible() {
+            EscrowStock escrow = new EscrowStock(new ProductStock("P001", "WH-1", 100, 20, 200), 4, 10, 5);
+            escrow.reserve(3);
+            assertEquals(3, escrow.getReserved());
+            assertEquals(97, escrow.getAvailable());
+            assertEquals(100, escrow.getOnHand());
+            assertEquals(3, escrow.snapshot().reserved());
+        }
+
+        @Test
+        @DisplayName("Concurrent reserves never oversell")
+        @Tag("Boundary")
+        void neverOversells() throws Exception {
+            EscrowStock escrow = new EscrowStock(new ProductStock("P001", "WH-1", 10_000, 0, 10_000), 8, 50, 20);
+            AtomicInteger granted = new AtomicInteger();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                Thread thread = new Thread(() -> {
+                    while (true) {
+                        try {
+                            escrow.reserve(1);
+                            granted.incrementAndGet();
+                        } catch (IllegalStateException e) {
+                            return;
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(10_000, granted.get());
+            assertEquals(10_000, escrow.getReserved());
+            assertEquals(0, escrow.getAvailable());
+            assertFalse(escrow.isEscrowActive());
+        }
+
+        @Test
+        @DisplayName("Falls back to global state near zero and resumes after restock")
+        @Tag("Boundary")
+        void fallbackAndResume() {
+            EscrowStock escrow = new EscrowStock(new ProductStock("P001", "WH-1", 30, 0, 500), 2, 10, 20);
+            escrow.reserve(5);
+            assertTrue(escrow.isEscrowActive());
+            escrow.reserve(10);
+            assertFalse(escrow.isEscrowActive());
+            assertEquals(15, escrow.getAvailable());
+            escrow.addStock(100);
+            assertTrue(escrow.isEscrowActive());
+            assertEquals(115, escrow.getAvailable());
+        }
+
+        @Test
+        @DisplayName("Quota is pulled back from other stripes when the global state runs dry")
+        @Tag("Normal")
+        void rebalancesAcrossStripes() throws Exception {
+            EscrowStock escrow = new EscrowStock(new ProductStock("P001", "WH-1", 100, 0, 100), 2, 60, 0);
+            Thread other = new Thread(() -> escrow.reserve(1));
+            other.start();
+            other.join();
+            // The other thread's stripe holds 59 units of quota; this request needs them back.
+            escrow.reserve(90);
+            assertEquals(91, escrow.getReserved());
+            assertEquals(9, escrow.getAvailable());
+        }
+
+        @Test
+        @DisplayName("Reserve more than available")
+        @Tag("Error")
+        void reserveTooMuch() {
+            EscrowStock escrow = new EscrowStock(new ProductStock("P001", "WH-1", 10, 0, 100), 2, 5, 0);
+            assertThrows(IllegalStateException.class, () -> escrow.reserve(11));
+            assertEquals(10, escrow.getAvailable());
+        }
+    }
+
+    @Nested
+    @DisplayName("Other operations")
+    @Tag("StockOperations")
+    class OtherOperationTests {
+
+        private EscrowStock escrow;
+
+        @BeforeEach
+        void setUp() {
+            escrow = new EscrowStock(new ProductStock("P001", "WH-1", 100, 20, 200), 4, 10, 5);
+            escrow.reserve(30);
+        }
+
+        @Test
+        @DisplayName("Release and ship only touch real reservations")
+        @Tag("Normal")
+        void releaseAndShip() {
+            escrow.releaseReservation(10);
+            escrow.shipReserved(15);
+            assertEquals(5, escrow.getReserved());
+            assertEquals(85, escrow.getOnHand());
+            assertThrows(IllegalStateException.class, () -> escrow.releaseReservation(6));
+            assertThrows(IllegalStateException.class, () -> escrow.shipReserved(6));
+        }
+
+        @Test
+        @DisplayName("removeDamaged clamps real reservations only")
+        @Tag("Boundary")
+        void removeDamaged() {
+            escrow.removeDamaged(80);
+            assertEquals(20, escrow.getOnHand());
+            assertEquals(20, escrow.getReserved());
+            assertEquals(0, escrow.getAvailable());
+            assertTrue(escrow.isReorderNeeded());
+        }
+
+        @Test
+        @DisplayName("Invalid amounts")
+        @Tag("Error")
+        void invalidAmounts() {
+            assertThrows(IllegalArgumentException.class, () -> escrow.reserve(0));
+            assertThrows(IllegalArgumentException.class, () -> escrow.releaseReservation(-1));
+            assertThrows(IllegalArgumentException.class, () -> escrow.shipReserved(0));
+        }
+    }
+}
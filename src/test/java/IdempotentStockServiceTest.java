@@ -0,0 +1,164 @@
+import org.example.IdempotentStockService;
+import org.example.InMemoryStockService;
+import org.example.LoadTarget;
+import org.example.StockCommand;
+import org.example.StockSnapshot;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Idempotent Stock Service Tests")
+@Tag("AllTests")
+public class IdempotentStockServiceTest {
+
+    private InMemoryStockService store;
+    private IdempotentStockService service;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryStockService();
+        store.apply(new StockCommand.Create("P1", "WH-1", 100, 10, 200));
+        service = new IdempotentStockService(store, Duration.ofMinutes(5), 1_024);
+    }
+
+    @Nested
+    @DisplayName("Deduplication")
+    @Tag("Idempotency")
+    class DedupTests {
+
+        @Test
+        @DisplayName("A retried reservation is applied once")
+        @Tag("Normal")
+        void retryAppliedOnce() {
+            assertTrue(service.apply(1L, new StockCommand.Reserve("P1", 30)));
+            assertFalse(service.apply(1L, new StockCommand.Reserve("P1", 30)));
+            assertTrue(service.apply(2L, new StockCommand.Reserve("P1", 30)));
+            assertEquals(60, store.snapshot("P1").reserved());
+            assertEquals(1, service.getReplayCount());
+        }
+
+        @Test
+        @DisplayName("A rejection is replayed, not retried against newer state")
+        @Tag("Normal")
+        void rejectionReplayed() {
+            IllegalStateException first = assertThrows(IllegalStateException.class,
+                    () -> service.apply(7L, new StockCommand.ShipReserved("P1", 5)));
+            service.apply(8L, new StockCommand.Reserve("P1", 5));
+            IllegalStateException replayed = assertThrows(IllegalStateException.class,
+                    () -> service.apply(7L, new StockCommand.ShipReserved("P1", 5)));
+            assertEquals(first.getMessage(), replayed.getMessage());
+            assertEquals(100, store.snapshot("P1").onHand());
+        }
+
+        @Test
+        @DisplayName("Reusing a key for another command is rejected")
+        @Tag("Error")
+        void keyReuse() {
+            service.apply(3L, new StockCommand.Reserve("P1", 1));
+            assertThrows(IllegalArgumentException.class, () -> service.apply(3L, new StockCommand.Reserve("P1", 2)));
+            assertEquals(1, store.snapshot("P1").reserved());
+        }
+
+        @Test
+        @DisplayName("Outcomes are forgotten after the window")
+        @Tag("Boundary")
+        void windowExpires() throws Exception {
+            IdempotentStockService shortWindow = new IdempotentStockService(store, Duration.ofMillis(20), 64);
+            shortWindow.apply(4L, new StockCommand.AddStock("P1", 1));
+            Thread.sleep(40);
+            assertTrue(shortWindow.apply(4L, new StockCommand.AddStock("P1", 1)));
+            assertEquals(102, store.snapshot("P1").onHand());
+        }
+
+        @Test
+        @DisplayName("A full cache overwrites the oldest outcomes and counts them")
+        @Tag("Boundary")
+        void boundedCapacity() {
+            IdempotentStockService tiny = new IdempotentStockService(store, Duration.ofMinutes(5), 8, 1);
+            assertEquals(8, tiny.capacity());
+            for (long key = 0; key < 10; key++) {
+                tiny.apply(key, new StockCommand.AddStock("P1", 1));
+            }
+            assertEquals(2, tiny.getEvictedLiveCount());
+            assertFalse(tiny.apply(9L, new StockCommand.AddStock("P1", 1)));
+            assertTrue(tiny.apply(0L, new StockCommand.AddStock("P1", 1)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Concurrency")
+    @Tag("Idempotency")
+    class ConcurrencyTests {
+
+        @Test
+        @DisplayName("A duplicate racing the original waits for its outcome")
+        @Tag("Normal")
+        void concurrentDuplicate() throws Exception {
+            CountDownLatch entered = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicInteger applied = new AtomicInteger();
+            LoadTarget slow = new LoadTarget() {
+                @Override
+                public void apply(StockCommand command) {
+                    applied.incrementAndGet();
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    store.apply(command);
+                }
+
+                @Override
+                public StockSnapshot snapshot(String productId) {
+                    return store.snapshot(productId);
+                }
+            };
+            IdempotentStockService dedup = new IdempotentStockService(slow, Duration.ofMinutes(5), 64);
+            StockCommand reserve = new StockCommand.Reserve("P1", 10);
+            Thread original = new Thread(() -> dedup.apply(42L, reserve));
+            original.start();
+            entered.await();
+            Thread retry = new Thread(() -> dedup.apply(42L, reserve));
+            retry.start();
+            Thread.sleep(20);
+            release.countDown();
+            original.join(5_000);
+            retry.join(5_000);
+            assertEquals(1, applied.get());
+            assertEquals(10, store.snapshot("P1").reserved());
+            assertEquals(1, dedup.getReplayCount());
+        }
+
+        @Test
+        @DisplayName("Unexpected failures are not remembered")
+        @Tag("Error")
+        void unexpectedFailureRetried() {
+            AtomicInteger calls = new AtomicInteger();
+            LoadTarget flaky = new LoadTarget() {
+                @Override
+                public void apply(StockCommand command) {
+                    if (calls.incrementAndGet() == 1) {
+                        throw new UnsupportedOperationException("timeout");
+                    }
+                    store.apply(command);
+                }
+
+                @Override
+                public StockSnapshot snapshot(String productId) {
+                    return store.snapshot(productId);
+                }
+            };
+            IdempotentStockService dedup = new IdempotentStockService(flaky, Duration.ofMinutes(5), 64);
+            StockCommand add = new StockCommand.AddStock("P1", 5);
+            assertThrows(UnsupportedOperationException.class, () -> dedup.apply(5L, add));
+            assertTrue(dedup.apply(5L, add));
+            assertEquals(105, store.snapshot("P1").onHand());
+        }
+    }
+}
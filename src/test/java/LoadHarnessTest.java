@@ -0,0 +1,182 @@
+import org.example.InMemoryStockService;
+import org.example.LoadHarness;
+import org.example.LoadReport;
+import org.example.LoadTarget;
+import org.example.OperationTrace;
+import org.example.StockCommand;
+import org.example.StockSnapshot;
+import org.example.WorkloadGenerator;
+import org.example.WorkloadSpec;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Load Harness Tests")
+@Tag("AllTests")
+public class LoadHarnessTest {
+
+    private static final WorkloadSpec SPEC = WorkloadSpec.orderMix(200, 7);
+
+    @Nested
+    @DisplayName("Workload generation")
+    @Tag("Load")
+    class GeneratorTests {
+
+        @Test
+        @DisplayName("Same seed gives the same stream")
+        @Tag("Normal")
+        void deterministic() {
+            assertEquals(LoadHarness.generate(SPEC, 1_000), LoadHarness.generate(SPEC, 1_000));
+        }
+
+        @Test
+        @DisplayName("Popular SKUs dominate under Zipf skew")
+        @Tag("Normal")
+        void zipfSkew() {
+            WorkloadGenerator generator = new WorkloadGenerator(SPEC, 0);
+            int hottest = 0;
+            int coldHalf = 0;
+            for (int i = 0; i < 10_000; i++) {
+                StockCommand command = generator.next();
+                if (command.productId().equals("SKU-0")) {
+                    hottest++;
+                }
+                if (Integer.parseInt(command.productId().substring(4)) >= 100) {
+                    coldHalf++;
+                }
+            }
+            assertTrue(hottest > coldHalf / 2, "hottest=" + hottest + " coldHalf=" + coldHalf);
+        }
+
+        @Test
+        @DisplayName("Ships only refer to earlier reservations")
+        @Tag("Normal")
+        void shipsFollowReserves() {
+            WorkloadGenerator generator = new WorkloadGenerator(
+                    new WorkloadSpec(10, 0, 1, 1, 0, 0, 0, 5, 100, 100, 1), 0);
+            InMemoryStockService target = new InMemoryStockService();
+            for (int i = 0; i < 10; i++) {
+                target.apply(new StockCommand.Create(WorkloadSpec.skuId(i), "WH-1", 100, 0, 100));
+            }
+            for (int i = 0; i < 200; i++) {
+                StockCommand command = generator.next();
+                try {
+                    target.apply(command);
+                } catch (IllegalStateException e) {
+                    assertTrue(command instanceof StockCommand.Reserve, "rejected " + command);
+                    generator.rejected(command);
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Invalid spec")
+        @Tag("Error")
+        void invalidSpec() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> new WorkloadSpec(10, 1, 0, 0, 0, 0, 0, 1, 0, 10, 1));
+            assertThrows(IllegalArgumentException.class,
+                    () -> new WorkloadSpec(10, 1, 1, 0, 0, 0, 0, 1, 20, 10, 1));
+        }
+    }
+
+    @Nested
+    @DisplayName("Load runs")
+    @Tag("Load")
+    class RunTests {
+
+        @Test
+        @DisplayName("Concurrent run reports latency and no invariant violations")
+        @Tag("Normal")
+        void concurrentRun() throws Exception {
+            LoadReport report = LoadHarness.run(new InMemoryStockService(), SPEC, 4, 5_000);
+            assertEquals(20_000, report.operations());
+            assertTrue(report.throughputPerSecond() > 0);
+            assertTrue(report.p50Nanos() <= report.p99Nanos());
+            assertTrue(report.p99Nanos() <= report.p999Nanos());
+            assertEquals(List.of(), report.invariantViolations());
+        }
+
+        @Test
+        @DisplayName("Broken store is reported as invariant violation")
+        @Tag("Error")
+        void detectsViolations() throws Exception {
+            InMemoryStockService delegate = new InMemoryStockService();
+            LoadTarget lossy = new LoadTarget() {
+                @Override
+                public void apply(StockCommand command) {
+                    // Silently drops receipts.
+                    if (!(command instanceof StockCommand.AddStock)) {
+                        delegate.apply(command);
+                    }
+                }
+
+                @Override
+                public StockSnapshot snapshot(String productId) {
+                    return delegate.snapshot(productId);
+                }
+            };
+            LoadReport report = LoadHarness.run(lossy, SPEC, 2, 2_000);
+            assertFalse(report.invariantViolations().isEmpty());
+        }
+
+        @Test
+        @DisplayName("Stored trace replays to identical results")
+        @Tag("Normal")
+        void storeAndReplay() throws Exception {
+            Path file = Files.createTempFile("stock-trace", ".bin");
+            try {
+                List<StockCommand> trace = LoadHarness.generate(SPEC, 5_000);
+                OperationTrace.write(file, trace);
+                List<StockCommand> loaded = OperationTrace.read(file);
+                assertEquals(trace, loaded);
+
+                InMemoryStockService first = new InMemoryStockService();
+                InMemoryStockService second = new InMemoryStockService();
+                LoadReport a = LoadHarness.replay(first, SPEC, trace);
+                LoadReport b = LoadHarness.replay(second, SPEC, loaded);
+                assertEquals(a.rejectionsByType(), b.rejectionsByType());
+                for (int i = 0; i < SPEC.skuCount(); i++) {
+                    assertEquals(first.snapshot(WorkloadSpec.skuId(i)), second.snapshot(WorkloadSpec.skuId(i)));
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        @Test
+        @DisplayName("Recording of a run replays to identical results")
+        @Tag("Normal")
+        void recordAndReplay() throws Exception {
+            InMemoryStockService recorded = new InMemoryStockService();
+            LoadHarness.Recording recording = LoadHarness.record(recorded, SPEC, 1, 5_000);
+            assertEquals(1, recording.streams().size());
+            assertEquals(5_000, recording.streams().get(0).size());
+
+            InMemoryStockService replayed = new InMemoryStockService();
+            LoadReport report = LoadHarness.replay(replayed, SPEC, recording);
+            assertEquals(recording.report().rejectionsByType(), report.rejectionsByType());
+            for (int i = 0; i < SPEC.skuCount(); i++) {
+                assertEquals(recorded.snapshot(WorkloadSpec.skuId(i)), replayed.snapshot(WorkloadSpec.skuId(i)));
+            }
+        }
+
+        @Test
+        @DisplayName("Concurrent recording keeps one stream per worker")
+        @Tag("Normal")
+        void concurrentRecording() throws Exception {
+            LoadHarness.Recording recording = LoadHarness.record(new InMemoryStockService(), SPEC, 4, 2_000);
+            assertEquals(4, recording.streams().size());
+            for (List<StockCommand> stream : recording.streams()) {
+                assertEquals(2_000, stream.size());
+            }
+            LoadReport report = LoadHarness.replay(new InMemoryStockService(), SPEC, recording);
+            assertEquals(8_000, report.operations());
+            assertEquals(List.of(), report.invariantViolations());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+import org.example.ExpirySweeper;
+import org.example.LotExpiryIndex;
+import org.example.LotTrackedStock;
+import org.example.ProductStock;
+import org.example.StockLot;
+import org.junit.jupiter.api.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Lot Tracking Tests")
+@Tag("AllTests")
+public class LotTrackedStockTest {
+
+    private static final LocalDate JAN_10 = LocalDate.of(2026, 1, 10);
+    private static final LocalDate JAN_20 = LocalDate.of(2026, 1, 20);
+    private static final LocalDate FEB_01 = LocalDate.of(2026, 2, 1);
+
+    private LotExpiryIndex index;
+    private LotTrackedStock milk;
+
+    @BeforeEach
+    void setUp() {
+        index = new LotExpiryIndex();
+        milk = new LotTrackedStock(new ProductStock("MILK", "WH-1", 0, 10, 500), index);
+        milk.receive("L-FEB", FEB_01, 100);
+        milk.receive("L-JAN10", JAN_10, 30);
+        milk.receive("L-JAN20", JAN_20, 50);
+    }
+
+    @Nested
+    @DisplayName("FEFO consumption")
+    @Tag("Lots")
+    class FefoTests {
+
+        @Test
+        @DisplayName("Shipments take the earliest-expiring lots first")
+        @Tag("Normal")
+        void shipsFefo() {
+            milk.reserve(40);
+            List<StockLot> shipped = milk.shipReserved(40);
+            assertEquals(List.of(new StockLot("L-JAN10", JAN_10, 30), new StockLot("L-JAN20", JAN_20, 10)), shipped);
+            assertEquals(140, milk.getOnHand());
+            assertEquals(0, milk.getReserved());
+            assertEquals(List.of(new StockLot("L-JAN20", JAN_20, 40), new StockLot("L-FEB", FEB_01, 100)),
+                    milk.getLots());
+            assertEquals(2, index.size());
+        }
+
+        @Test
+        @DisplayName("Shipping on a date never takes lots expired by then")
+        @Tag("Boundary")
+        void shipsOnlyUnexpiredLots() {
+            milk.reserve(40);
+            List<StockLot> shipped = milk.shipReserved(40, JAN_10.plusDays(1));
+            assertEquals(List.of(new StockLot("L-JAN20", JAN_20, 40)), shipped);
+            assertEquals(110, milk.getOnHand());
+            assertEquals(List.of(new StockLot("L-JAN20", JAN_20, 10), new StockLot("L-FEB", FEB_01, 100)),
+                    milk.getLots());
+            assertEquals(2, index.size());
+        }
+
+        @Test
+        @DisplayName("Lot-specific damage")
+        @Tag("Normal")
+        void lotDamage() {
+            milk.removeDamaged("L-FEB", 25);
+            assertEquals(155, milk.getOnHand());
+            assertThrows(IllegalStateException.class, () -> milk.removeDamaged("L-JAN10", 31));
+            assertThrows(IllegalStateException.class, () -> milk.removeDamaged("NOPE", 1));
+        }
+
+        @Test
+        @DisplayName("Invalid receipts leave lots unchanged")
+        @Tag("Error")
+        void invalidReceipts() {
+            assertThrows(IllegalArgumentException.class, () -> milk.receive("L-FEB", JAN_10, 5));
+            assertThrows(IllegalStateException.class, () -> milk.receive("L-NEW", JAN_10, 400));
+            assertThrows(IllegalArgumentException.class, () -> milk.receive("L-NEW", JAN_10, 0));
+            assertEquals(3, milk.getLots().size());
+            assertEquals(180, milk.getOnHand());
+        }
+
+        @Test
+        @DisplayName("Stock with untracked on-hand quantity is rejected")
+        @Tag("Error")
+        void untrackedOnHand() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> new LotTrackedStock(new ProductStock("P", "WH-1", 5, 0, 10), null));
+        }
+    }
+
+    @Nested
+    @DisplayName("Expiry")
+    @Tag("Lots")
+    class ExpiryTests {
+
+        @Test
+        @DisplayName("Sweep removes only expired lots and clamps reservations")
+        @Tag("Normal")
+        void sweep() {
+            LotTrackedStock cheese = new LotTrackedStock(new ProductStock("CHEESE", "WH-1", 0, 0, 100), index);
+            cheese.receive("C-1", JAN_10, 10);
+            milk.reserve(170);
+
+            ExpirySweeper sweeper = new ExpirySweeper(index, Clock.systemUTC());
+            assertEquals(90, sweeper.sweep(JAN_20.plusDays(1)));
+
+            assertEquals(100, milk.getOnHand());
+            assertEquals(100, milk.getReserved());
+            assertEquals(List.of(new StockLot("L-FEB", FEB_01, 100)), milk.getLots());
+            assertEquals(0, cheese.getOnHand());
+            assertEquals(FEB_01, index.earliestExpiry());
+            assertEquals(0, sweeper.sweep(JAN_20.plusDays(1)));
+        }
+
+        @Test
+        @DisplayName("The same lot of one product at two locations expires at both")
+        @Tag("Normal")
+        void sameLotAtTwoLocations() {
+            LotTrackedStock wh1 = new LotTrackedStock(new ProductStock("BREAD", "WH-1", 0, 0, 100), index);
+            LotTrackedStock wh2 = new LotTrackedStock(new ProductStock("BREAD", "WH-2", 0, 0, 100), index);
+            wh1.receive("L1", JAN_10, 10);
+            wh2.receive("L1", JAN_10, 10);
+            assertEquals(5, index.size());
+
+            assertEquals(50, new ExpirySweeper(index, Clock.systemUTC()).sweep(JAN_10.plusDays(1)));
+            assertEquals(0, wh1.getOnHand());
+            assertEquals(0, wh2.getOnHand());
+        }
+
+        @Test
+        @DisplayName("A lot expiring today is still sellable")
+        @Tag("Boundary")
+        void expiryDayIsInclusive() {
+            assertEquals(List.of(), milk.expire(JAN_10));
+            assertEquals(List.of(new StockLot("L-JAN10", JAN_10, 30)), milk.expire(JAN_10.plusDays(1)));
+            assertEquals(2, index.size());
+        }
+
+        @Test
+        @DisplayName("Scheduled sweep uses the clock's date")
+        @Tag("Normal")
+        void scheduledSweep() throws Exception {
+            Clock clock = Clock.fixed(FEB_01.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+            try (ExpirySweeper sweeper = new ExpirySweeper(index, clock)) {
+                sweeper.start(Duration.ofMillis(10));
+                long deadline = System.currentTimeMillis() + 5_000;
+                while (milk.getOnHand() > 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(5);
+                }
+            }
+            assertEquals(0, milk.getOnHand());
+            assertEquals(0, index.size());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import org.example.ConsistentHashRing;
+import org.example.PartitionThroughputHarness;
+import org.example.PartitionedStockService;
+import org.example.StockCommand;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Partitioned Stock Service Tests")
+@Tag("AllTests")
+public class PartitionedStockServiceTest {
+
+    private static final int SKUS = 2_000;
+
+    @Nested
+    @DisplayName("Consistent hash ring")
+    @Tag("Partitioning")
+    class RingTests {
+
+        @Test
+        @DisplayName("Adding a node only moves keys to the new node")
+        @Tag("Normal")
+        void addingNodeMovesKeysOnlyToNewNode() {
+            ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c"), 100);
+            ConsistentHashRing next = ring.withNode("d");
+            int moved = 0;
+            for (int i = 0; i < SKUS; i++) {
+                String key = "SKU-" + i;
+                if (!ring.ownerOf(key).equals(next.ownerOf(key))) {
+                    assertEquals("d", next.ownerOf(key));
+                    moved++;
+                }
+            }
+            // Roughly a quarter of the keys should move.
+            assertTrue(moved > SKUS / 8 && moved < SKUS / 2, "moved " + moved);
+        }
+
+        @Test
+        @DisplayName("Empty node list")
+        @Tag("Error")
+        void emptyNodes() {
+            assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of(), 10));
+        }
+
+        @Test
+        @DisplayName("Duplicate node")
+        @Tag("Error")
+        void duplicateNode() {
+            ConsistentHashRing ring = new ConsistentHashRing(List.of("a"), 10);
+            assertThrows(IllegalArgumentException.class, () -> ring.withNode("a"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Routing and rebalancing")
+    @Tag("Partitioning")
+    class ServiceTests {
+
+        private PartitionedStockService service;
+
+        @BeforeEach
+        void setUp() {
+            service = new PartitionedStockService(List.of("n1", "n2"), 64);
+            for (int i = 0; i < SKUS; i++) {
+                service.apply(new StockCommand.Create("SKU-" + i, "WH-1", 100, 10, 200));
+            }
+        }
+
+        @AfterEach
+        void tearDown() {
+            service.close();
+        }
+
+        @Test
+        @DisplayName("Operations reach the owning node")
+        @Tag("Normal")
+        void routesToOwner() {
+            service.reserve("SKU-7", 30);
+            assertEquals(70, service.getAvailable("SKU-7"));
+            assertThrows(IllegalStateException.class, () -> service.reserve("SKU-7", 71));
+            assertThrows(IllegalStateException.class, () -> service.getAvailable("NOPE"));
+            Map<String, Integer> counts = service.skuCountsByNode();
+            assertEquals(SKUS, counts.values().stream().mapToInt(Integer::intValue).sum());
+        }
+
+        @Test
+        @DisplayName("Live rebalance keeps every SKU and every mutation")
+        @Tag("Normal")
+        void liveRebalance() throws Exception {
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            int[] reserved = new int[1];
+            Thread client = new Thread(() -> {
+                try {
+                    int i = 0;
+                    while (running.get() && i < SKUS) {
+                        service.reserve("SKU-" + i, 1);
+                        reserved[0]++;
+                        i++;
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            client.start();
+            CompletableFuture<Void> done = service.addNode("n3");
+            done.get(10, TimeUnit.SECONDS);
+            running.set(false);
+            client.join();
+            assertNull(failure.get());
+
+            Map<String, Integer> counts = service.skuCountsByNode();
+            assertEquals(3, counts.size());
+            assertTrue(counts.get("n3") > 0);
+            assertEquals(SKUS, counts.values().stream().mapToInt(Integer::intValue).sum());
+            int total = 0;
+            for (int i = 0; i < SKUS; i++) {
+                total += service.snapshot("SKU-" + i).reserved();
+            }
+            assertEquals(reserved[0], total);
+        }
+
+        @Test
+        @DisplayName("Closing during a rebalance completes every operation")
+        @Tag("Boundary")
+        void closeDuringRebalance() throws Exception {
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread client = new Thread(() -> {
+                try {
+                    for (int i = 0; i < SKUS; i++) {
+                        service.reserve("SKU-" + i, 1);
+                    }
+                } catch (IllegalStateException e) {
+                    // Closed underneath us: expected.
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            CompletableFuture<Void> done = service.addNode("n3");
+            client.start();
+            service.close();
+            client.join(10_000);
+            assertFalse(client.isAlive(), "client is stuck waiting for a result");
+            assertNull(failure.get());
+            assertTrue(done.isDone());
+        }
+
+        @Test
+        @DisplayName("Duplicate node rejected")
+        @Tag("Error")
+        void duplicateNodeRejected() throws Exception {
+            service.addNode("n3").get(10, TimeUnit.SECONDS);
+            assertThrows(IllegalArgumentException.class, () -> service.addNode("n3"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Throughput harness")
+    @Tag("Partitioning")
+    class HarnessTests {
+
+        @Test
+        @DisplayName("Harness reports positive throughput")
+        @Tag("Normal")
+        void harnessRuns() throws Exception {
+            assertTrue(PartitionThroughputHarness.measure(2, 2, 100, Duration.ofMillis(100)) > 0);
+        }
+    }
+}
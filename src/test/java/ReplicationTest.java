@@ -0,0 +1,243 @@
+import org.example.ReplicationFollower;
+import org.example.ReplicationPrimary;
+import org.example.StockCommand;
+import org.example.StockWireCodec;
+import org.junit.jupiter.api.*;
+
+import java.io.DataOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Replication Tests")
+@Tag("AllTests")
+public class ReplicationTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    private ReplicationPrimary primary;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        primary = new ReplicationPrimary(0, 64, Duration.ofMillis(20));
+        primary.apply(new StockCommand.Create("P001", "WH-1", 100, 20, 200));
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.close();
+    }
+
+    @Nested
+    @DisplayName("Journal shipping")
+    @Tag("Replication")
+    class ShippingTests {
+
+        @Test
+        @DisplayName("Followers apply the journal in order")
+        @Tag("Normal")
+        void followersConverge() throws Exception {
+            try (ReplicationFollower f1 = ReplicationFollower.connect("localhost", primary.getPort(), null);
+                 ReplicationFollower f2 = ReplicationFollower.connect("localhost", primary.getPort(), null)) {
+                for (int i = 0; i < 70; i++) {
+                    primary.apply(new StockCommand.Reserve("P001", 1));
+                }
+                primary.apply(new StockCommand.ShipReserved("P001", 10));
+                long head = primary.apply(new StockCommand.ChangeLocation("P001", "WH-2"));
+
+                assertTrue(f1.awaitSequence(head, WAIT));
+                assertTrue(f2.awaitSequence(head, WAIT));
+                assertEquals(primary.snapshot("P001"), f1.snapshot("P001"));
+                assertEquals(primary.snapshot("P001"), f2.snapshot("P001"));
+                assertEquals(30, f1.getAvailable("P001"));
+                assertEquals(0, f1.getLagEntries());
+            }
+        }
+
+        @Test
+        @DisplayName("Rejected commands are not journaled")
+        @Tag("Error")
+        void rejectedNotJournaled() {
+            long head = primary.getHeadSequence();
+            assertThrows(IllegalStateException.class,
+                    () -> primary.apply(new StockCommand.Reserve("P001", 1000)));
+            assertThrows(IllegalStateException.class,
+                    () -> primary.apply(new StockCommand.Reserve("NOPE", 1)));
+            assertEquals(head, primary.getHeadSequence());
+        }
+
+        @Test
+        @DisplayName("Primary tracks follower acknowledgements")
+        @Tag("Normal")
+        void tracksAcks() throws Exception {
+            try (ReplicationFollower follower = ReplicationFollower.connect("localhost", primary.getPort(), null)) {
+                long head = primary.apply(new StockCommand.AddStock("P001", 5));
+                assertTrue(follower.awaitSequence(head, WAIT));
+                long deadline = System.currentTimeMillis() + WAIT.toMillis();
+                while (primary.getMinAckedSequence() < head && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(5);
+                }
+                assertEquals(head, primary.getMinAckedSequence());
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Journal window")
+    @Tag("Replication")
+    class WindowTests {
+
+        @Test
+        @DisplayName("Acknowledged entries are dropped from the journal")
+        @Tag("Normal")
+        void journalStaysBounded() throws Exception {
+            try (ReplicationFollower follower = ReplicationFollower.connect("localhost", primary.getPort(), null)) {
+                long head = 0;
+                for (int i = 0; i < 10_000; i++) {
+                    head = primary.apply(new StockCommand.Reserve("P001", 1));
+                    primary.apply(new StockCommand.ReleaseReservation("P001", 1));
+                }
+                assertTrue(follower.awaitSequence(head, WAIT));
+                long deadline = System.currentTimeMillis() + WAIT.toMillis();
+                while (primary.getMinAckedSequence() < head && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(5);
+                }
+                // Trimming happens on append, once a chunk of acknowledged entries has built up.
+                for (int i = 0; i < 1_024; i++) {
+                    primary.apply(new StockCommand.Reserve("P001", 1));
+                    primary.apply(new StockCommand.ReleaseReservation("P001", 1));
+                }
+                assertTrue(primary.getRetainedJournalEntries() < 4_096);
+            }
+        }
+
+        @Test
+        @DisplayName("Late follower bootstraps from a snapshot and the journal tail")
+        @Tag("Boundary")
+        void lateFollowerBootstraps() throws Exception {
+            primary.apply(new StockCommand.Create("P002", "WH-1", 50, 5, 100));
+            for (int i = 0; i < 3_000; i++) {
+                primary.apply(new StockCommand.Reserve("P001", 1));
+                primary.apply(new StockCommand.ReleaseReservation("P001", 1));
+            }
+            primary.apply(new StockCommand.Reserve("P002", 7));
+            assertTrue(primary.getRetainedJournalEntries() < 1_024);
+
+            try (ReplicationFollower late = ReplicationFollower.connect("localhost", primary.getPort(), null)) {
+                primary.apply(new StockCommand.Create("P003", "WH-2", 10, 1, 20));
+                long head = primary.apply(new StockCommand.ShipReserved("P002", 7));
+                assertTrue(late.awaitSequence(head, WAIT));
+                assertEquals(primary.snapshot("P001"), late.snapshot("P001"));
+                assertEquals(primary.snapshot("P002"), late.snapshot("P002"));
+                assertEquals(primary.snapshot("P003"), late.snapshot("P003"));
+            }
+        }
+
+        @Test
+        @DisplayName("Followers connecting while products are created converge")
+        @Tag("Boundary")
+        void connectDuringCreates() throws Exception {
+            for (int i = 0; i < 1_000; i++) {
+                primary.apply(new StockCommand.Reserve("P001", 1));
+                primary.apply(new StockCommand.ReleaseReservation("P001", 1));
+            }
+            Thread creator = new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    String productId = "N" + i;
+                    primary.apply(new StockCommand.Create(productId, "WH-1", 10, 1, 20));
+                    primary.apply(new StockCommand.Reserve(productId, 1));
+                }
+            });
+            List<ReplicationFollower> followers = new ArrayList<>();
+            try {
+                creator.start();
+                while (creator.isAlive() && followers.size() < 40) {
+                    followers.add(ReplicationFollower.connect("localhost", primary.getPort(), null));
+                }
+                creator.join();
+                long head = primary.getHeadSequence();
+                for (ReplicationFollower follower : followers) {
+                    assertTrue(follower.awaitSequence(head, WAIT), "applied " + follower.getAppliedSequence() + " of " + head);
+                    assertNull(follower.getFailure());
+                    assertEquals(primary.snapshot("N1999"), follower.snapshot("N1999"));
+                }
+            } finally {
+                for (ReplicationFollower follower : followers) {
+                    follower.close();
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Journal that does not fit the follower's state stops it with a failure")
+        @Tag("Error")
+        void divergedJournalStopsFollower() throws Exception {
+            try (ServerSocket fake = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+                 ReplicationFollower follower = ReplicationFollower.connect("localhost", fake.getLocalPort(), null);
+                 Socket socket = fake.accept()) {
+                ByteBuffer reserve = ByteBuffer.allocate(64);
+                new StockWireCodec().encode(new StockCommand.Reserve("NOPE", 1), reserve);
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeLong(0);
+                out.writeInt(0);
+                out.writeLong(1);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(1);
+                out.writeLong(1);
+                out.write(reserve.array(), 0, reserve.position());
+                out.flush();
+
+                assertFalse(follower.awaitSequence(1, WAIT));
+                assertTrue(follower.isClosed());
+                assertTrue(follower.getFailure() instanceof IllegalStateException);
+            }
+        }
+
+        @Test
+        @DisplayName("Non-positive journal bound is rejected")
+        @Tag("Error")
+        void invalidJournalBound() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> new ReplicationPrimary(0, 64, Duration.ofMillis(20), 0));
+        }
+    }
+
+    @Nested
+    @DisplayName("Lag reporting")
+    @Tag("Replication")
+    class LagTests {
+
+        @Test
+        @DisplayName("Idle follower stays within lag bound via heartbeats")
+        @Tag("Normal")
+        void heartbeatsKeepLagBounded() throws Exception {
+            try (ReplicationFollower follower =
+                         ReplicationFollower.connect("localhost", primary.getPort(), Duration.ofSeconds(1))) {
+                assertTrue(follower.awaitSequence(primary.getHeadSequence(), WAIT));
+                Thread.sleep(100);
+                assertTrue(follower.getLagMillis() < 1000);
+                assertFalse(follower.isReorderNeeded("P001"));
+            }
+        }
+
+        @Test
+        @DisplayName("Disconnected follower reports growing lag and rejects reads")
+        @Tag("Error")
+        void disconnectedFollowerRejectsReads() throws Exception {
+            ReplicationFollower follower =
+                    ReplicationFollower.connect("localhost", primary.getPort(), Duration.ofMillis(50));
+            assertTrue(follower.awaitSequence(primary.getHeadSequence(), WAIT));
+            primary.close();
+            Thread.sleep(150);
+            assertTrue(follower.getLagMillis() >= 50);
+            assertThrows(IllegalStateException.class, () -> follower.getAvailable("P001"));
+            follower.close();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+import org.example.InMemoryStockStore;
+import org.example.ProductStock;
+import org.example.StockCache;
+import org.example.StockSnapshot;
+import org.example.StockStore;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("StockCache Tests")
+@Tag("AllTests")
+public class StockCacheTest {
+
+    private InMemoryStockStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryStockStore();
+        store.storeAll(List.of(
+                new StockSnapshot("P001", "WH-1", 100, 10, 20, 200),
+                new StockSnapshot("P002", "WH-1", 50, 0, 5, 100),
+                new StockSnapshot("P003", "WH-2", 30, 0, 5, 100)));
+    }
+
+    @Nested
+    @DisplayName("Read-through")
+    @Tag("Cache")
+    class ReadThroughTests {
+
+        @Test
+        @DisplayName("Loads missing SKU from the store once")
+        @Tag("Normal")
+        void loadsOnce() {
+            try (StockCache cache = StockCache.open(store, 10, Duration.ofHours(1))) {
+                assertEquals(90, cache.getAvailable("P001"));
+                assertEquals(90, cache.getAvailable("P001"));
+                assertEquals(1, store.getLoadCount());
+            }
+        }
+
+        @Test
+        @DisplayName("A slow load blocks neither hits nor misses on other SKUs")
+        @Tag("Normal")
+        void slowLoadDoesNotBlockOthers() throws Exception {
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            StockStore slow = new StockStore() {
+                @Override
+                public StockSnapshot load(String productId) {
+                    if (productId.equals("P003")) {
+                        loading.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return store.load(productId);
+                }
+
+                @Override
+                public void storeAll(Collection<StockSnapshot> snapshots) {
+                    store.storeAll(snapshots);
+                }
+            };
+            try (StockCache cache = StockCache.open(slow, 10, Duration.ofHours(1))) {
+                cache.getAvailable("P001");
+                Thread first = new Thread(() -> cache.getAvailable("P003"));
+                Thread second = new Thread(() -> cache.getAvailable("P003"));
+                first.start();
+                loading.await();
+                second.start();
+                assertEquals(90, cache.getAvailable("P001"));
+                assertEquals(50, cache.getAvailable("P002"));
+                release.countDown();
+                first.join(5_000);
+                second.join(5_000);
+                assertEquals(3, store.getLoadCount());
+            }
+        }
+
+        @Test
+        @DisplayName("Unknown SKU")
+        @Tag("Error")
+        void unknownSku() {
+            try (StockCache cache = StockCache.open(store, 10, Duration.ofHours(1))) {
+                assertThrows(IllegalStateException.class, () -> cache.getAvailable("NOPE"));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Write-behind")
+    @Tag("Cache")
+    class WriteBehindTests {
+
+        @Test
+        @DisplayName("Many mutations to one SKU coalesce into one write")
+        @Tag("Normal")
+        void coalescesWrites() {
+            long before = store.getWriteCount();
+            try (StockCache cache = StockCache.open(store, 10, Duration.ofHours(1))) {
+                for (int i = 0; i < 50; i++) {
+                    cache.reserve("P001", 1);
+                }
+                assertEquals(before, store.getWriteCount());
+                assertEquals(1, cache.flush());
+            }
+            assertEquals(before + 1, store.getWriteCount());
+            assertEquals(60, store.peek("P001").reserved());
+        }
+
+        @Test
+        @DisplayName("Failed mutation is not marked dirty")
+        @Tag("Error")
+        void failedMutationNotDirty() {
+            try (StockCache cache = StockCache.open(store, 10, Duration.ofHours(1))) {
+                assertThrows(IllegalStateException.class, () -> cache.reserve("P002", 1000));
+                assertEquals(0, cache.dirtyCount());
+            }
+        }
+
+        @Test
+        @DisplayName("Close flushes dirty entries")
+        @Tag("Normal")
+        void closeFlushes() {
+            StockCache cache = StockCache.open(store, 10, Duration.ofHours(1));
+            cache.put(new ProductStock("P009", "WH-3", 10, 1, 20));
+            cache.addStock("P002", 5);
+            cache.close();
+            assertEquals(10, store.peek("P009").onHand());
+            assertEquals(55, store.peek("P002").onHand());
+            assertThrows(IllegalStateException.class, () -> cache.getAvailable("P002"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Eviction")
+    @Tag("Cache")
+    class EvictionTests {
+
+        @Test
+        @DisplayName("Keeps at most maxEntries SKUs without losing dirty state")
+        @Tag("Boundary")
+        void evictsColdDirtySku() {
+            try (StockCache cache = StockCache.open(store, 2, Duration.ofHours(1))) {
+                cache.reserve("P001", 5);
+                cache.getAvailable("P002");
+                cache.getAvailable("P003");
+                assertEquals(2, cache.size());
+                // P001 was evicted dirty; reading it back must see the pending state.
+                assertEquals(85, cache.getAvailable("P001"));
+                assertEquals(1, cache.flush());
+                assertEquals(15, store.peek("P001").reserved());
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+import org.example.ProductStock;
+import org.example.StockChange;
+import org.example.StockChangePublisher;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("StockChangePublisher Tests")
+@Tag("AllTests")
+public class StockChangePublisherTest {
+
+    /**
+     * Subscriber that records everything and only requests when told to.
+     */
+    static class RecordingSubscriber implements Flow.Subscriber<StockChange> {
+        final List<StockChange> received = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(StockChange item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    private StockChangePublisher publisher;
+    private RecordingSubscriber subscriber;
+    private ProductStock p1;
+    private ProductStock p2;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new StockChangePublisher(Runnable::run);
+        subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        p1 = new ProductStock("P001", "WH-1", 100, 20, 200);
+        p2 = new ProductStock("P002", "WH-1", 50, 5, 100);
+    }
+
+    @Nested
+    @DisplayName("Demand")
+    @Tag("Publisher")
+    class DemandTests {
+
+        @Test
+        @DisplayName("Nothing is delivered without demand")
+        @Tag("Normal")
+        void respectsDemand() {
+            publisher.mutate(p1, s -> s.reserve(10));
+            assertTrue(subscriber.received.isEmpty());
+            subscriber.subscription.request(1);
+            assertEquals(List.of(new StockChange("P001", "WH-1", 100, 100, 0, 10)), subscriber.received);
+        }
+
+        @Test
+        @DisplayName("Non-positive request signals onError")
+        @Tag("Error")
+        void nonPositiveRequest() {
+            subscriber.subscription.request(0);
+            assertTrue(subscriber.error instanceof IllegalArgumentException);
+            assertEquals(0, publisher.getSubscriberCount());
+        }
+
+        @Test
+        @DisplayName("Failed mutation publishes nothing")
+        @Tag("Error")
+        void failedMutation() {
+            subscriber.subscription.request(Long.MAX_VALUE);
+            assertThrows(IllegalStateException.class, () -> publisher.mutate(p1, s -> s.reserve(1000)));
+            assertTrue(subscriber.received.isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("Conflation")
+    @Tag("Publisher")
+    class ConflationTests {
+
+        @Test
+        @DisplayName("Pending changes to one SKU are merged")
+        @Tag("Normal")
+        void conflatesPerSku() {
+            publisher.mutate(p1, s -> s.reserve(10));
+            publisher.mutate(p2, s -> s.addStock(5));
+            publisher.mutate(p1, s -> s.shipReserved(10));
+            publisher.mutate(p1, s -> s.changeLocation("WH-2"));
+            subscriber.subscription.request(10);
+            assertEquals(List.of(
+                    new StockChange("P001", "WH-2", 100, 90, 0, 0),
+                    new StockChange("P002", "WH-1", 50, 55, 0, 0)), subscriber.received);
+            assertEquals(2, publisher.getConflatedCount());
+        }
+
+        @Test
+        @DisplayName("Slow subscriber does not stall mutations")
+        @Tag("Boundary")
+        void slowSubscriberDoesNotStall() throws Exception {
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try (StockChangePublisher async = new StockChangePublisher(executor)) {
+                RecordingSubscriber slow = new RecordingSubscriber();
+                async.subscribe(slow);
+                for (int i = 0; i < 10_000; i++) {
+                    async.mutate(p1, s -> s.reserve(1));
+                    async.mutate(p1, s -> s.releaseReservation(1));
+                }
+                assertEquals(19_999, async.getConflatedCount());
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        @Test
+        @DisplayName("Concurrent mutations of one SKU are delivered in applied order")
+        @Tag("Normal")
+        void concurrentMutationsStayOrdered() throws Exception {
+            ProductStock hot = new ProductStock("HOT", "WH-1", 20_000, 0, 20_000);
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            RecordingSubscriber ordered = new RecordingSubscriber();
+            try (StockChangePublisher async = new StockChangePublisher(executor)) {
+                async.subscribe(ordered);
+                ordered.subscription.request(Long.MAX_VALUE);
+                List<Thread> threads = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    Thread thread = new Thread(() -> {
+                        for (int i = 0; i < 2_000; i++) {
+                            async.mutate(hot, s -> s.reserve(1));
+                        }
+                    });
+                    threads.add(thread);
+                    thread.start();
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            int last = 0;
+            for (StockChange change : ordered.received) {
+                assertTrue(change.newReserved() >= last, "newReserved went from " + last + " to " + change.newReserved());
+                last = change.newReserved();
+            }
+            assertEquals(16_000, last);
+            assertTrue(ordered.completed);
+        }
+    }
+
+    @Nested
+    @DisplayName("Completion")
+    @Tag("Publisher")
+    class CompletionTests {
+
+        @Test
+        @DisplayName("Close completes after pending changes are delivered")
+        @Tag("Normal")
+        void closeCompletesAfterPending() {
+            publisher.mutate(p1, s -> s.reserve(1));
+            publisher.close();
+            assertFalse(subscriber.completed);
+            subscriber.subscription.request(1);
+            assertEquals(1, subscriber.received.size());
+            assertTrue(subscriber.completed);
+        }
+
+        @Test
+        @DisplayName("Mutating through a closed publisher is rejected before the stock changes")
+        @Tag("Error")
+        void mutateAfterClose() {
+            publisher.close();
+            assertThrows(IllegalStateException.class, () -> publisher.mutate(p1, s -> s.reserve(10)));
+            assertEquals(0, p1.getReserved());
+            assertThrows(IllegalStateException.class,
+                    () -> publisher.publish(new StockChange("P001", "WH-1", 100, 100, 0, 1)));
+        }
+
+        @Test
+        @DisplayName("Cancelled subscriber receives nothing")
+        @Tag("Normal")
+        void cancel() {
+            subscriber.subscription.cancel();
+            publisher.mutate(p1, s -> s.reserve(1));
+            subscriber.subscription.request(1);
+            assertTrue(subscriber.received.isEmpty());
+            assertEquals(0, publisher.getSubscriberCount());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+import org.example.ProductStock;
+import org.example.StockCommand;
+import org.example.StockSnapshot;
+import org.example.StockWireCodec;
+import org.junit.jupiter.api.*;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("StockWireCodec Tests")
+@Tag("AllTests")
+public class StockWireCodecTest {
+
+    private StockWireCodec codec;
+    private ByteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        codec = new StockWireCodec();
+        buffer = ByteBuffer.allocate(512);
+    }
+
+    @Nested
+    @DisplayName("Round-trip")
+    @Tag("Codec")
+    class RoundTripTests {
+
+        @Test
+        @DisplayName("Stock record keeps every field")
+        @Tag("Normal")
+        void stockRoundTrip() {
+            ProductStock stock = new ProductStock("P001", "WH-1-A3", 150, 20, 200);
+            stock.reserve(40);
+            codec.encode(stock, buffer);
+            buffer.flip();
+            assertEquals(StockWireCodec.TYPE_STOCK, StockWireCodec.peekType(buffer));
+            assertEquals(StockSnapshot.of(stock), codec.decodeSnapshot(buffer));
+            assertFalse(buffer.hasRemaining());
+        }
+
+        @Test
+        @DisplayName("Every command type")
+        @Tag("Normal")
+        void commandRoundTrip() {
+            List<StockCommand> commands = List.of(
+                    new StockCommand.Create("P001", "WH-1", 0, 0, Integer.MAX_VALUE),
+                    new StockCommand.AddStock("P001", 1),
+                    new StockCommand.RemoveDamaged("P001", 300),
+                    new StockCommand.Reserve("P001", 70_000),
+                    new StockCommand.ReleaseReservation("P001", -5),
+                    new StockCommand.ShipReserved("P001", Integer.MIN_VALUE),
+                    new StockCommand.ChangeLocation("P001", "Lager-Ü-仓-📦"),
+                    new StockCommand.UpdateReorderThreshold("P001", 20),
+                    new StockCommand.UpdateMaxCapacity("P001", 500));
+            for (StockCommand command : commands) {
+                codec.encode(command, buffer);
+            }
+            buffer.flip();
+            for (StockCommand command : commands) {
+                assertEquals(command, codec.decodeCommand(buffer));
+            }
+            assertFalse(buffer.hasRemaining());
+        }
+
+        @Test
+        @DisplayName("Small quantities take one byte")
+        @Tag("Boundary")
+        void compactEncoding() {
+            codec.encode(new StockCommand.Reserve("P1", 5), buffer);
+            // type + version + length + (len + 2 chars) + amount
+            assertEquals(7, buffer.position());
+        }
+    }
+
+    @Nested
+    @DisplayName("Schema evolution")
+    @Tag("Codec")
+    class EvolutionTests {
+
+        @Test
+        @DisplayName("Newer version with extra trailing fields is readable")
+        @Tag("Normal")
+        void skipsUnknownTrailingFields() {
+            buffer.put(StockWireCodec.TYPE_RESERVE);
+            buffer.put((byte) 2);           // future version
+            buffer.put((byte) 6);           // payload length
+            buffer.put((byte) 2).put((byte) 'P').put((byte) '1');
+            buffer.put((byte) 10);          // zig-zag 5
+            buffer.put((byte) 0x7F).put((byte) 0x01); // unknown field
+            codec.encode(new StockCommand.AddStock("P1", 1), buffer);
+            buffer.flip();
+            assertEquals(new StockCommand.Reserve("P1", 5), codec.decodeCommand(buffer));
+            assertEquals(new StockCommand.AddStock("P1", 1), codec.decodeCommand(buffer));
+        }
+    }
+
+    @Nested
+    @DisplayName("Errors")
+    @Tag("Codec")
+    class ErrorTests {
+
+        @Test
+        @DisplayName("Buffer too small leaves position unchanged")
+        @Tag("Error")
+        void overflow() {
+            ByteBuffer small = ByteBuffer.allocate(4);
+            assertThrows(BufferOverflowException.class,
+                    () -> codec.encode(new StockCommand.Reserve("P001", 5), small));
+            assertEquals(0, small.position());
+        }
+
+        @Test
+        @DisplayName("Truncated message")
+        @Tag("Error")
+        void truncated() {
+            codec.encode(new StockCommand.Reserve("P001", 5), buffer);
+            buffer.flip();
+            buffer.limit(buffer.limit() - 1);
+            assertThrows(IllegalArgumentException.class, () -> codec.decodeCommand(buffer));
+            assertEquals(0, buffer.position());
+        }
+
+        @Test
+        @DisplayName("Stock record decoded as command")
+        @Tag("Error")
+        void wrongType() {
+            codec.encode(new StockSnapshot("P001", "WH-1", 1, 0, 0, 1), buffer);
+            buffer.flip();
+            assertThrows(IllegalArgumentException.class, () -> codec.decodeCommand(buffer));
+        }
+    }
+}
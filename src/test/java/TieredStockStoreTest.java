@@ -0,0 +1,183 @@
+import org.example.FileStockStore;
+import org.example.InMemoryStockStore;
+import org.example.StockCommand;
+import org.example.StockSnapshot;
+import org.example.TieredStockStore;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tiered Stock Store Tests")
+@Tag("AllTests")
+public class TieredStockStoreTest {
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = Files.createTempFile("stock-cold", ".dat");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Nested
+    @DisplayName("File-backed cold tier")
+    @Tag("Tiering")
+    class FileStoreTests {
+
+        @Test
+        @DisplayName("Latest record wins and survives reopening")
+        @Tag("Normal")
+        void persistsAcrossReopen() throws Exception {
+            try (FileStockStore store = new FileStockStore(file)) {
+                store.storeAll(List.of(new StockSnapshot("P001", "WH-1", 10, 0, 1, 100)));
+                store.storeAll(List.of(new StockSnapshot("P001", "WH-2", 20, 5, 1, 100),
+                        new StockSnapshot("P002", "WH-1", 7, 0, 1, 100)));
+            }
+            try (FileStockStore store = new FileStockStore(file)) {
+                assertEquals(2, store.size());
+                assertEquals(new StockSnapshot("P001", "WH-2", 20, 5, 1, 100), store.load("P001"));
+                assertNull(store.load("P999"));
+            }
+        }
+
+        @Test
+        @DisplayName("Index grows with the catalog and is rebuilt on reopen")
+        @Tag("Boundary")
+        void indexGrowsAndRebuilds() throws Exception {
+            try (FileStockStore store = new FileStockStore(file)) {
+                for (int i = 0; i < 5_000; i++) {
+                    store.storeAll(List.of(new StockSnapshot("SKU-" + i, "WH-1", i % 100, 0, 1, 100)));
+                }
+                store.storeAll(List.of(new StockSnapshot("SKU-42", "WH-9", 7, 0, 1, 100)));
+                store.compact();
+                assertEquals(5_000, store.size());
+            }
+            try (FileStockStore store = new FileStockStore(file)) {
+                assertEquals(5_000, store.size());
+                assertEquals(new StockSnapshot("SKU-42", "WH-9", 7, 0, 1, 100), store.load("SKU-42"));
+                assertEquals(99, store.load("SKU-4999").onHand());
+                assertFalse(store.contains("SKU-5000"));
+            }
+        }
+
+        @Test
+        @DisplayName("Compaction drops superseded records")
+        @Tag("Boundary")
+        void compaction() throws Exception {
+            try (FileStockStore store = new FileStockStore(file)) {
+                for (int i = 0; i < 100; i++) {
+                    store.storeAll(List.of(new StockSnapshot("P001", "WH-1", i, 0, 1, 100)));
+                }
+                long before = store.getFileBytes();
+                store.compact();
+                assertTrue(store.getFileBytes() < before / 50);
+                assertEquals(99, store.load("P001").onHand());
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Hot/cold paging")
+    @Tag("Tiering")
+    class PagingTests {
+
+        @Test
+        @DisplayName("Heap holds only the working set; cold SKUs fault back in")
+        @Tag("Normal")
+        void faultsColdSkusBackIn() throws Exception {
+            try (FileStockStore cold = new FileStockStore(file);
+                 TieredStockStore store = new TieredStockStore(cold, 10)) {
+                for (int i = 0; i < 100; i++) {
+                    store.apply(new StockCommand.Create("SKU-" + i, "WH-1", 50, 5, 100));
+                }
+                assertEquals(10, store.hotCount());
+                assertEquals(90, store.getEvictionCount());
+                store.flush();
+                assertEquals(100, cold.size());
+
+                store.apply(new StockCommand.Reserve("SKU-0", 20));
+                assertTrue(store.isHot("SKU-0"));
+                assertEquals(30, store.hotTier().getAvailable("SKU-0"));
+                assertTrue(store.getFaultCount() >= 1);
+            }
+        }
+
+        @Test
+        @DisplayName("Frequently used SKUs survive a scan of one-off accesses")
+        @Tag("Normal")
+        void frequencyAwareEviction() {
+            InMemoryStockStore cold = new InMemoryStockStore();
+            TieredStockStore store = new TieredStockStore(cold, 4);
+            for (int i = 0; i < 20; i++) {
+                store.apply(new StockCommand.Create("SKU-" + i, "WH-1", 50, 5, 100));
+            }
+            for (int i = 0; i < 3; i++) {
+                store.snapshot("SKU-0");
+            }
+            for (int i = 1; i < 20; i++) {
+                store.snapshot("SKU-" + i);
+                store.snapshot("SKU-0");
+            }
+            assertTrue(store.isHot("SKU-0"));
+        }
+
+        @Test
+        @DisplayName("Clean pages are not rewritten on eviction")
+        @Tag("Boundary")
+        void cleanEvictionSkipsWrite() {
+            InMemoryStockStore cold = new InMemoryStockStore();
+            cold.storeAll(List.of(new StockSnapshot("A", "WH-1", 1, 0, 0, 10),
+                    new StockSnapshot("B", "WH-1", 1, 0, 0, 10)));
+            long writes = cold.getWriteCount();
+            TieredStockStore store = new TieredStockStore(cold, 1);
+            store.snapshot("A");
+            store.snapshot("B");
+            store.snapshot("A");
+            assertEquals(writes, cold.getWriteCount());
+            assertEquals(2, store.getEvictionCount());
+        }
+
+        @Test
+        @DisplayName("Page-outs are written in batches off the fault path")
+        @Tag("Normal")
+        void batchedPageOut() throws Exception {
+            InMemoryStockStore cold = new InMemoryStockStore();
+            try (TieredStockStore store = new TieredStockStore(cold, 8, Duration.ofHours(1))) {
+                for (int i = 0; i < 8 + 63; i++) {
+                    store.apply(new StockCommand.Create("SKU-" + i, "WH-1", 5, 0, 10));
+                }
+                assertEquals(0, cold.getWriteCount());
+                store.apply(new StockCommand.Create("SKU-71", "WH-1", 5, 0, 10));
+                long deadline = System.currentTimeMillis() + 5_000;
+                while (cold.size() < 64 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(5);
+                }
+                // The early flush also writes the dirty hot SKUs.
+                assertTrue(cold.size() >= 64);
+                assertEquals(5, store.snapshot("SKU-0").onHand());
+            }
+            assertEquals(72, cold.size());
+        }
+
+        @Test
+        @DisplayName("Unknown and duplicate SKUs")
+        @Tag("Error")
+        void unknownAndDuplicate() {
+            TieredStockStore store = new TieredStockStore(new InMemoryStockStore(), 2);
+            store.apply(new StockCommand.Create("P001", "WH-1", 5, 0, 10));
+            assertThrows(IllegalStateException.class, () -> store.snapshot("NOPE"));
+            assertThrows(IllegalStateException.class,
+                    () -> store.apply(new StockCommand.Create("P001", "WH-1", 5, 0, 10)));
+            assertThrows(IllegalStateException.class, () -> store.apply(new StockCommand.Reserve("P001", 6)));
+        }
+    }
+}